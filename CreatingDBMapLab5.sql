@@ -35,6 +35,13 @@ insert into Courses values (2,'SecondCourse', 5,2,10);
 insert into Courses values (3,'ThirdCourse', 20,1,5);
 insert into Courses values (4,'FourthCourse', 20,2,5);
 
+#every update of a row increments its version, a writer updates a row only if it still has the version read
+alter table Students
+add column version int not null default 0;
+
+alter table Courses
+add column version int not null default 0;
+
 
 create table Enrolled(
 studentId bigint, courseId bigint, PRIMARY KEY(studentId, courseId),
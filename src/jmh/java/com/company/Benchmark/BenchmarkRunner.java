@@ -0,0 +1,41 @@
+package com.company.Benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * main class of target/benchmarks.jar, takes the usual JMH options and runs all benchmarks of this package
+ * with the GC profiler, which reports the allocation rate and bytes allocated per operation next to the time,
+ * unless other benchmarks or profilers are given:
+ * java -jar target/benchmarks.jar ControllerBenchmark -p students=1000 -prof stack
+ * JdbcControllerBenchmark.updateStudentsCredits is left out of the default run on H2, its UPDATE with a join
+ * needs a MySQL server given with -Dbenchmark.jdbc.url (see Dataset)
+ */
+public final class BenchmarkRunner {
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions command = new CommandLineOptions(args);
+        if (command.shouldHelp()) {
+            command.showHelp();
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(command);
+        if (command.getIncludes().isEmpty()) {
+            options.include(BenchmarkRunner.class.getPackage().getName() + "\\..*");
+            if (Dataset.usesH2())
+                options.exclude(JdbcControllerBenchmark.class.getName() + "\\.updateStudentsCredits");
+        }
+        if (command.getProfilers().isEmpty())
+            options.addProfiler(GCProfiler.class);
+        Runner runner = new Runner(options.build());
+        if (command.shouldList())
+            runner.list();
+        else
+            runner.run();
+    }
+}
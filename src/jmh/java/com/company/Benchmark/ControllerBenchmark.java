@@ -0,0 +1,58 @@
+package com.company.Benchmark;
+
+import com.company.Controller.RegistrationSystem;
+import com.company.Database.InMemoryDatabase;
+import com.company.Model.Course;
+import com.company.Model.Student;
+import com.company.Repository.CourseMemoryRepository;
+import com.company.Repository.StudentMemoryRepository;
+import com.company.Repository.TeacherMemoryRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the reading calls of RegistrationSystem and updateStudentsCredits on the in-memory database,
+ * JdbcControllerBenchmark runs the same calls on the JDBC repositories
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControllerBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int students;
+
+    private RegistrationSystem controller;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        InMemoryDatabase database = new InMemoryDatabase();
+        new Dataset(students).load(database);
+        controller = new RegistrationSystem(new StudentMemoryRepository(database),
+                new TeacherMemoryRepository(database), new CourseMemoryRepository(database), database);
+    }
+
+    @Benchmark
+    public List<Student> sortStudents() throws Exception {
+        return controller.sortStudents();
+    }
+
+    @Benchmark
+    public List<Course> sortCourses() throws Exception {
+        return controller.sortCourses();
+    }
+
+    @Benchmark
+    public List<Course> retrieveCoursesWithFreePlaces() throws Exception {
+        return controller.retrieveCoursesWithFreePlaces();
+    }
+
+    @Benchmark
+    public void updateStudentsCredits() throws Exception {
+        controller.updateStudentsCredits();
+    }
+}
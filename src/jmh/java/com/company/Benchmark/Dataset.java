@@ -0,0 +1,173 @@
+package com.company.Benchmark;
+
+import com.company.Database.ConnectionPool;
+import com.company.Database.InMemoryDatabase;
+import com.company.Model.Course;
+import com.company.Model.Student;
+import com.company.Model.Teacher;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * the data the benchmarks run on, the same for every engine and growing with the number of students:
+ * a teacher for every 100 students, a course for every 10 students, every student enrolled to 3 courses,
+ * so a course has 30 of its MAX_ENROLLMENT places taken and a student 3 * CREDITS of his 30 credits;
+ * the JDBC benchmarks run on a new in-memory H2 database in MySQL mode, or on the MySQL server given with
+ * -Dbenchmark.jdbc.url=jdbc:mysql://host/database (and benchmark.jdbc.user, benchmark.jdbc.password),
+ * whose tables are dropped and created again by every load
+ */
+final class Dataset {
+    static final int COURSES_PER_STUDENT = 3;
+    static final int CREDITS = 5;
+    static final int MAX_ENROLLMENT = 50;
+    static final String JDBC_URL_PROPERTY = "benchmark.jdbc.url";
+
+    private static final String DROP_TABLES = "drop table if exists Enrolled, Courses, Students, Teachers";
+    // the tables of CreatingDBMapLab5.sql, also valid in the MySQL mode of H2
+    private static final String[] SCHEMA = {
+            DROP_TABLES,
+            "create table Students(studentId bigint PRIMARY KEY, firstName varchar(30), lastName varchar(30), " +
+                    "totalCredits int, version int not null default 0)",
+            "create table Teachers(teacherId bigint PRIMARY KEY, firstName varchar(30), lastName varchar(30))",
+            "create table Courses(courseId bigint PRIMARY KEY, name varchar(30), credits int, teacherId bigint, " +
+                    "maxEnrollment int, version int not null default 0, " +
+                    "FOREIGN KEY(teacherId) REFERENCES Teachers(teacherId))",
+            "create table Enrolled(studentId bigint, courseId bigint, PRIMARY KEY(studentId, courseId), " +
+                    "FOREIGN KEY(studentId) REFERENCES Students(studentId), " +
+                    "FOREIGN KEY(courseId) REFERENCES Courses(courseId))",
+            "create index EnrolledByCourse on Enrolled(courseId)"
+    };
+
+    private final int students;
+    private final int teachers;
+    private final int courses;
+
+    Dataset(int students) {
+        this.students = students;
+        this.teachers = Math.max(1, students / 100);
+        this.courses = Math.max(COURSES_PER_STUDENT, students / 10);
+    }
+
+    /**
+     * @return true if the JDBC benchmarks run on H2, which can not run the UPDATE with a join of
+     * recomputeCredits and addCredits
+     */
+    static boolean usesH2() {
+        return System.getProperty(JDBC_URL_PROPERTY) == null;
+    }
+
+    /**
+     * @param name name of the H2 database, made unique by this method
+     * @param size maximum number of connections
+     * @return a pool on a new H2 database, or on the MySQL server of benchmark.jdbc.url
+     */
+    static ConnectionPool pool(String name, int size) {
+        if (usesH2())
+            // DB_CLOSE_DELAY keeps the database while the pool has no connection open, drop frees it
+            return new ConnectionPool("jdbc:h2:mem:" + name + "_" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+                    "sa", "", size);
+        return new ConnectionPool(System.getProperty(JDBC_URL_PROPERTY), System.getProperty("benchmark.jdbc.user", "root"),
+                System.getProperty("benchmark.jdbc.password", ""), size);
+    }
+
+    int getStudentCount() {
+        return students;
+    }
+
+    int getCourseCount() {
+        return courses;
+    }
+
+    int getTeacherCount() {
+        return teachers;
+    }
+
+    long teacherOf(long courseId) {
+        return courseId % teachers;
+    }
+
+    long courseOf(long studentId, int n) {
+        return (studentId + n) % courses;
+    }
+
+    /**
+     * creates the tables, dropping those of an earlier load, and inserts the data with batches of plain statements
+     */
+    void load(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String table : SCHEMA)
+                statement.execute(table);
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO Teachers values (?, ?, ?)")) {
+            for (long id = 0; id < teachers; id++) {
+                insert.setLong(1, id);
+                insert.setString(2, "Teacher" + id);
+                insert.setString(3, "Last" + id);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO Courses (courseId, name, credits, teacherId, maxEnrollment) values (?, ?, ?, ?, ?)")) {
+            for (long id = 0; id < courses; id++) {
+                insert.setLong(1, id);
+                insert.setString(2, "Course" + id);
+                insert.setInt(3, CREDITS);
+                insert.setLong(4, this.teacherOf(id));
+                insert.setInt(5, MAX_ENROLLMENT);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        try (PreparedStatement insertStudent = connection.prepareStatement(
+                "INSERT INTO Students (studentId, firstName, lastName, totalCredits) values (?, ?, ?, ?)");
+             PreparedStatement insertEnrolled = connection.prepareStatement("INSERT INTO Enrolled values (?, ?)")) {
+            for (long id = 0; id < students; id++) {
+                insertStudent.setLong(1, id);
+                insertStudent.setString(2, "First" + (id * 7919 % students));
+                insertStudent.setString(3, "Last" + (id * 104729 % students));
+                insertStudent.setInt(4, COURSES_PER_STUDENT * CREDITS);
+                insertStudent.addBatch();
+                for (int n = 0; n < COURSES_PER_STUDENT; n++) {
+                    insertEnrolled.setLong(1, id);
+                    insertEnrolled.setLong(2, this.courseOf(id, n));
+                    insertEnrolled.addBatch();
+                }
+            }
+            insertStudent.executeBatch();
+            insertEnrolled.executeBatch();
+        }
+    }
+
+    /**
+     * drops the tables created by load
+     */
+    static void drop(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(DROP_TABLES);
+        }
+    }
+
+    /**
+     * puts the data into the in-memory database in one unit
+     */
+    void load(InMemoryDatabase database) throws SQLException {
+        database.write(() -> {
+            for (long id = 0; id < teachers; id++)
+                database.putTeacher(new Teacher(id, "Teacher" + id, "Last" + id));
+            for (long id = 0; id < courses; id++)
+                database.putCourse(new Course(id, "Course" + id, database.teacher(this.teacherOf(id)), MAX_ENROLLMENT,
+                        CREDITS));
+            for (long id = 0; id < students; id++) {
+                database.putStudent(new Student(id, "First" + (id * 7919 % students), "Last" + (id * 104729 % students),
+                        COURSES_PER_STUDENT * CREDITS));
+                for (int n = 0; n < COURSES_PER_STUDENT; n++)
+                    database.enroll(id, this.courseOf(id, n));
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,76 @@
+package com.company.Benchmark;
+
+import com.company.Controller.RegistrationSystem;
+import com.company.Database.ConnectionPool;
+import com.company.Database.TransactionManager;
+import com.company.Model.Course;
+import com.company.Model.Student;
+import com.company.Repository.CourseJdbcRepository;
+import com.company.Repository.StudentJdbcRepository;
+import com.company.Repository.TeacherJdbcRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the calls of ControllerBenchmark on the JDBC repositories, wired like Main without the caches,
+ * so every call goes to the database; updateStudentsCredits runs the UPDATE with a join of recomputeCredits,
+ * which H2 can not parse, BenchmarkRunner leaves it out unless a MySQL server is given (see Dataset)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JdbcControllerBenchmark {
+    private static final int POOL_SIZE = 4;
+
+    @Param({"100", "1000", "10000"})
+    public int students;
+
+    private ConnectionPool pool;
+    private RegistrationSystem controller;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        pool = Dataset.pool("controller" + students, POOL_SIZE);
+        try (Connection connection = pool.getConnection()) {
+            new Dataset(students).load(connection);
+        }
+        TransactionManager transactions = new TransactionManager(pool);
+        controller = new RegistrationSystem(new StudentJdbcRepository(transactions),
+                new TeacherJdbcRepository(transactions), new CourseJdbcRepository(transactions), transactions);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try (Connection connection = pool.getConnection()) {
+            Dataset.drop(connection);
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Benchmark
+    public List<Student> sortStudents() throws Exception {
+        return controller.sortStudents();
+    }
+
+    @Benchmark
+    public List<Course> sortCourses() throws Exception {
+        return controller.sortCourses();
+    }
+
+    @Benchmark
+    public List<Course> retrieveCoursesWithFreePlaces() throws Exception {
+        return controller.retrieveCoursesWithFreePlaces();
+    }
+
+    @Benchmark
+    public void updateStudentsCredits() throws Exception {
+        controller.updateStudentsCredits();
+    }
+}
@@ -0,0 +1,77 @@
+package com.company.Benchmark;
+
+import com.company.Controller.RegistrationSystem;
+import com.company.Database.ConnectionPool;
+import com.company.Database.TransactionManager;
+import com.company.Exceptions.InputException;
+import com.company.Repository.CourseJdbcRepository;
+import com.company.Repository.StudentJdbcRepository;
+import com.company.Repository.TeacherJdbcRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RegisterBenchmark on the JDBC repositories: every registration is a transaction of the TransactionManager
+ * with the optimistic course and student updates, the roster check and the Enrolled insert;
+ * every iteration loads the dataset again and runs a batch of BATCH registrations
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, batchSize = JdbcRegisterBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = JdbcRegisterBenchmark.BATCH)
+@Fork(1)
+public class JdbcRegisterBenchmark {
+    static final int BATCH = 100;
+    private static final int POOL_SIZE = 4;
+
+    @Param({"100", "1000", "10000"})
+    public int students;
+
+    private Dataset dataset;
+    private ConnectionPool pool;
+    private RegistrationSystem controller;
+    private StudentJdbcRepository studentRepo;
+    private CourseJdbcRepository courseRepo;
+    private long next;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        dataset = new Dataset(students);
+        pool = Dataset.pool("register" + students, POOL_SIZE);
+        try (Connection connection = pool.getConnection()) {
+            dataset.load(connection);
+        }
+        TransactionManager transactions = new TransactionManager(pool);
+        studentRepo = new StudentJdbcRepository(transactions);
+        courseRepo = new CourseJdbcRepository(transactions);
+        controller = new RegistrationSystem(studentRepo, new TeacherJdbcRepository(transactions), courseRepo,
+                transactions);
+        // the enrollment index is built by the first registration, here one which is refused as a duplicate,
+        // so it is not built inside the measured batch
+        try {
+            controller.register(courseRepo.findOne(dataset.courseOf(0, 0)), studentRepo.findOne(0L));
+        } catch (InputException e) {
+            // expected, student 0 is enrolled to the course already
+        }
+        next = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws Exception {
+        try (Connection connection = pool.getConnection()) {
+            Dataset.drop(connection);
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Benchmark
+    public boolean register() throws Exception {
+        long studentId = next++ % dataset.getStudentCount();
+        long courseId = dataset.courseOf(studentId, Dataset.COURSES_PER_STUDENT);
+        return controller.register(courseRepo.findOne(courseId), studentRepo.findOne(studentId));
+    }
+}
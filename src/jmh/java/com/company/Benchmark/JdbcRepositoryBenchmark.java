@@ -0,0 +1,112 @@
+package com.company.Benchmark;
+
+import com.company.Database.ConnectionPool;
+import com.company.Model.Course;
+import com.company.Model.Student;
+import com.company.Model.Teacher;
+import com.company.Repository.CourseJdbcRepository;
+import com.company.Repository.StudentJdbcRepository;
+import com.company.Repository.TeacherJdbcRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * findOne, findAll and update of every JdbcRepository against an in-memory H2 database in MySQL mode,
+ * which stands in for the MySQL server, so the numbers show the work of the repositories and the driver
+ * without the network, or against a MySQL server (see Dataset);
+ * findOne reads a random id, update writes the same entity again and again
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JdbcRepositoryBenchmark {
+    private static final int POOL_SIZE = 4;
+
+    @Param({"100", "1000", "10000"})
+    public int students;
+
+    private Dataset dataset;
+    private ConnectionPool pool;
+    private StudentJdbcRepository studentRepo;
+    private CourseJdbcRepository courseRepo;
+    private TeacherJdbcRepository teacherRepo;
+    private Student updatedStudent;
+    private Course updatedCourse;
+    private Teacher updatedTeacher;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataset = new Dataset(students);
+        pool = Dataset.pool("repositories" + students, POOL_SIZE);
+        try (Connection connection = pool.getConnection()) {
+            dataset.load(connection);
+        }
+        studentRepo = new StudentJdbcRepository(pool);
+        courseRepo = new CourseJdbcRepository(pool);
+        teacherRepo = new TeacherJdbcRepository(pool);
+        updatedStudent = studentRepo.findOne(0L);
+        updatedCourse = courseRepo.findOne(0L);
+        updatedTeacher = teacherRepo.findOne(0L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try (Connection connection = pool.getConnection()) {
+            Dataset.drop(connection);
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Benchmark
+    public Student studentFindOne() throws Exception {
+        return studentRepo.findOne(ThreadLocalRandom.current().nextLong(dataset.getStudentCount()));
+    }
+
+    @Benchmark
+    public List<Student> studentFindAll() throws Exception {
+        return studentRepo.findAll();
+    }
+
+    @Benchmark
+    public Student studentUpdate() throws Exception {
+        return studentRepo.update(updatedStudent);
+    }
+
+    @Benchmark
+    public Course courseFindOne() throws Exception {
+        return courseRepo.findOne(ThreadLocalRandom.current().nextLong(dataset.getCourseCount()));
+    }
+
+    @Benchmark
+    public List<Course> courseFindAll() throws Exception {
+        return courseRepo.findAll();
+    }
+
+    @Benchmark
+    public Course courseUpdate() throws Exception {
+        return courseRepo.update(updatedCourse);
+    }
+
+    @Benchmark
+    public Teacher teacherFindOne() throws Exception {
+        return teacherRepo.findOne(ThreadLocalRandom.current().nextLong(dataset.getTeacherCount()));
+    }
+
+    @Benchmark
+    public List<Teacher> teacherFindAll() throws Exception {
+        return teacherRepo.findAll();
+    }
+
+    @Benchmark
+    public Teacher teacherUpdate() throws Exception {
+        return teacherRepo.update(updatedTeacher);
+    }
+}
@@ -0,0 +1,60 @@
+package com.company.Benchmark;
+
+import com.company.Controller.RegistrationSystem;
+import com.company.Database.InMemoryDatabase;
+import com.company.Exceptions.InputException;
+import com.company.Repository.CourseMemoryRepository;
+import com.company.Repository.StudentMemoryRepository;
+import com.company.Repository.TeacherMemoryRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RegistrationSystem.register on the in-memory database; a registration changes the data, so every iteration
+ * starts on a new copy of the dataset and runs a batch of BATCH registrations, each of a different student
+ * to a course he is not enrolled to yet, which still has free places and keeps him under 30 credits
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, batchSize = RegisterBenchmark.BATCH)
+@Measurement(iterations = 20, batchSize = RegisterBenchmark.BATCH)
+@Fork(1)
+public class RegisterBenchmark {
+    static final int BATCH = 100;
+
+    @Param({"100", "1000", "10000"})
+    public int students;
+
+    private Dataset dataset;
+    private RegistrationSystem controller;
+    private StudentMemoryRepository studentRepo;
+    private CourseMemoryRepository courseRepo;
+    private long next;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        dataset = new Dataset(students);
+        InMemoryDatabase database = new InMemoryDatabase();
+        dataset.load(database);
+        studentRepo = new StudentMemoryRepository(database);
+        courseRepo = new CourseMemoryRepository(database);
+        controller = new RegistrationSystem(studentRepo, new TeacherMemoryRepository(database), courseRepo, database);
+        // the enrollment index is built by the first registration, here one which is refused as a duplicate,
+        // so it is not built inside the measured batch
+        try {
+            controller.register(courseRepo.findOne(dataset.courseOf(0, 0)), studentRepo.findOne(0L));
+        } catch (InputException e) {
+            // expected, student 0 is enrolled to the course already
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    public boolean register() throws Exception {
+        long studentId = next++ % dataset.getStudentCount();
+        long courseId = dataset.courseOf(studentId, Dataset.COURSES_PER_STUDENT);
+        return controller.register(courseRepo.findOne(courseId), studentRepo.findOne(studentId));
+    }
+}
@@ -0,0 +1,110 @@
+package com.company.Benchmark;
+
+import com.company.Database.ConnectionPool;
+import com.company.Model.Course;
+import com.company.Model.Student;
+import com.company.Model.Teacher;
+import com.company.Repository.CourseJdbcRepository;
+import com.company.Repository.FetchMode;
+import com.company.Repository.StudentJdbcRepository;
+import com.company.Repository.TeacherJdbcRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the number of statements, so of round trips to the database, a findAll of every JdbcRepository sends,
+ * counted by the ConnectionPool and reported as the "statements" counter of every call next to its time;
+ * with FetchMode JOIN and LAZY it must be one statement whatever the number of students, else the call fails,
+ * with SELECT it grows with the number of entities
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 1)
+@Fork(1)
+public class RoundTripBenchmark {
+    private static final int POOL_SIZE = 2;
+
+    @Param({"100", "1000", "10000"})
+    public int students;
+
+    @Param({"JOIN", "LAZY", "SELECT"})
+    public FetchMode fetchMode;
+
+    private ConnectionPool pool;
+    private StudentJdbcRepository studentRepo;
+    private CourseJdbcRepository courseRepo;
+    private TeacherJdbcRepository teacherRepo;
+
+    /**
+     * statements of the calls of one iteration, a single call with SingleShotTime
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Statements {
+        public long statements;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            statements = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        pool = Dataset.pool("roundtrips" + students, POOL_SIZE);
+        try (Connection connection = pool.getConnection()) {
+            new Dataset(students).load(connection);
+        }
+        studentRepo = new StudentJdbcRepository(pool);
+        courseRepo = new CourseJdbcRepository(pool);
+        teacherRepo = new TeacherJdbcRepository(pool);
+        studentRepo.setFetchMode(fetchMode);
+        courseRepo.setFetchMode(fetchMode);
+        teacherRepo.setFetchMode(fetchMode);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try (Connection connection = pool.getConnection()) {
+            Dataset.drop(connection);
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Benchmark
+    public List<Student> studentFindAll(Statements counter) throws Exception {
+        long before = pool.getStatementCount();
+        List<Student> all = studentRepo.findAll();
+        this.count(counter, pool.getStatementCount() - before);
+        return all;
+    }
+
+    @Benchmark
+    public List<Course> courseFindAll(Statements counter) throws Exception {
+        long before = pool.getStatementCount();
+        List<Course> all = courseRepo.findAll();
+        this.count(counter, pool.getStatementCount() - before);
+        return all;
+    }
+
+    @Benchmark
+    public List<Teacher> teacherFindAll(Statements counter) throws Exception {
+        long before = pool.getStatementCount();
+        List<Teacher> all = teacherRepo.findAll();
+        this.count(counter, pool.getStatementCount() - before);
+        return all;
+    }
+
+    private void count(Statements counter, long statements) {
+        counter.statements += statements;
+        if (fetchMode != FetchMode.SELECT && statements != 1)
+            throw new IllegalStateException("findAll with " + fetchMode + " sent " + statements
+                    + " statements for " + students + " students instead of 1!");
+    }
+}
@@ -0,0 +1,103 @@
+package com.company.Controller;
+
+import com.company.Database.EnrollmentIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * counts the taken seats of every course in process, a registration takes its seat here before it is written,
+ * so two registrations can not both get the last seat of a course
+ * the counters are compare-and-set loops on one AtomicInteger for each course, registrations to different courses
+ * never wait for each other; a counter starts from the roster size in the enrollment index
+ */
+public class AdmissionGate {
+    private final EnrollmentIndex enrollments;
+    private final ConcurrentMap<Long, AtomicInteger> taken = new ConcurrentHashMap<>();
+
+    public AdmissionGate(EnrollmentIndex enrollments) {
+        this.enrollments = enrollments;
+    }
+
+    /**
+     * takes a seat of the course if fewer than maxEnrollment seats are taken
+     *
+     * @return true if the seat was taken
+     */
+    public boolean tryTake(long courseId, int maxEnrollment) {
+        AtomicInteger seats = this.seats(courseId);
+        while (true) {
+            int current = seats.get();
+            if (current >= maxEnrollment)
+                return false;
+            if (seats.compareAndSet(current, current + 1))
+                return true;
+        }
+    }
+
+    /**
+     * gives back a seat taken by a registration which was not written
+     */
+    public void release(long courseId) {
+        AtomicInteger seats = taken.get(courseId);
+        if (seats != null)
+            seats.decrementAndGet();
+    }
+
+    /**
+     * drops the counter of a course whose roster changed outside of the gate, the next use counts the index again
+     */
+    public void forget(long courseId) {
+        taken.remove(courseId);
+    }
+
+    /**
+     * @return number of taken seats of the course
+     */
+    public int getTaken(long courseId) {
+        return this.seats(courseId).get();
+    }
+
+    private AtomicInteger seats(long courseId) {
+        return taken.computeIfAbsent(courseId, id -> new AtomicInteger(enrollments.rosterSize(id)));
+    }
+
+    /**
+     * @return a new reservation to collect the seats of one registration
+     */
+    public Reservation reservation() {
+        return new Reservation();
+    }
+
+    /**
+     * the seats taken by one registration, given back together if the registration fails
+     * or when its transaction runs the work again
+     */
+    public class Reservation {
+        private final List<Long> courseIds = new ArrayList<>();
+
+        public boolean take(long courseId, int maxEnrollment) {
+            if (!tryTake(courseId, maxEnrollment))
+                return false;
+            courseIds.add(courseId);
+            return true;
+        }
+
+        /**
+         * gives back one seat of the course taken by this reservation
+         */
+        public void release(long courseId) {
+            if (courseIds.remove(Long.valueOf(courseId)))
+                AdmissionGate.this.release(courseId);
+        }
+
+        public void releaseAll() {
+            for (Long courseId : courseIds)
+                AdmissionGate.this.release(courseId);
+            courseIds.clear();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.company.Controller;
+
+import com.company.Exceptions.InputException;
+import com.company.Exceptions.NullException;
+import com.company.Model.Course;
+import com.company.Model.Student;
+import com.company.Model.Teacher;
+import com.company.Repository.EnrollmentCount;
+import com.company.Repository.Page;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * runs the calls of a RegistrationSystem on other threads and gives their results as CompletableFutures,
+ * a failed call completes its future with the exception the RegistrationSystem threw
+ * every call gets its own virtual thread when the JVM has them (Java 21 and later), otherwise the calls run
+ * on a fixed pool of platform threads; at most maxConcurrent calls run at once and the others wait for a permit
+ * before they ask for a connection, so with maxConcurrent set to the size of the connection pool
+ * any number of calls can be in flight without running into the acquire timeout of the pool
+ */
+public class AsyncRegistrationSystem implements AutoCloseable {
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final RegistrationSystem system;
+    private final ExecutorService executor;
+    private final int maxConcurrent;
+    private final Semaphore running;
+    private final boolean virtualThreads;
+
+    /**
+     * @param system        the registration system the calls run on
+     * @param maxConcurrent how many calls may run at once, usually the size of the connection pool
+     */
+    public AsyncRegistrationSystem(RegistrationSystem system, int maxConcurrent) {
+        if (maxConcurrent < 1)
+            throw new IllegalArgumentException("At least one call must be able to run!");
+        this.system = system;
+        this.maxConcurrent = maxConcurrent;
+        this.running = new Semaphore(maxConcurrent);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newFixedThreadPool(maxConcurrent, new PlatformThreads());
+    }
+
+    /**
+     * @return true if the calls run on virtual threads
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return number of calls running now
+     */
+    public int getRunningCount() {
+        return maxConcurrent - running.availablePermits();
+    }
+
+    /**
+     * @return number of calls waiting for a permit to run
+     */
+    public int getWaitingCount() {
+        return running.getQueueLength();
+    }
+
+    public CompletableFuture<Boolean> register(Course course, Student student) {
+        return this.submit(() -> system.register(course, student));
+    }
+
+    public CompletableFuture<List<RegistrationOutcome>> registerAll(List<RegistrationRequest> requests) {
+        return this.submit(() -> system.registerAll(requests));
+    }
+
+    public CompletableFuture<Student> findOneStudent(long id) {
+        return this.submit(() -> system.findOneStudent(id));
+    }
+
+    public CompletableFuture<Course> findOneCourse(long id) {
+        return this.submit(() -> system.findOneCourse(id));
+    }
+
+    public CompletableFuture<Teacher> findOneTeacher(long id) {
+        return this.submit(() -> system.findOneTeacher(id));
+    }
+
+    public CompletableFuture<List<Student>> getAllStudents() {
+        return this.submit(system::getAllStudents);
+    }
+
+    public CompletableFuture<List<Course>> getAllCourses() {
+        return this.submit(system::getAllCourses);
+    }
+
+    public CompletableFuture<List<Teacher>> getAllTeachers() {
+        return this.submit(system::getAllTeachers);
+    }
+
+    public CompletableFuture<Page<Student>> getStudentsPage(Long afterId, int limit) {
+        return this.submit(() -> system.getStudentsPage(afterId, limit));
+    }
+
+    public CompletableFuture<Page<Course>> getCoursesPage(Long afterId, int limit) {
+        return this.submit(() -> system.getCoursesPage(afterId, limit));
+    }
+
+    public CompletableFuture<List<EnrollmentCount>> retrieveFreePlaces() {
+        return this.submit(system::retrieveFreePlaces);
+    }
+
+    /**
+     * runs any call on the registration system like the methods above
+     *
+     * @param call the call to be run
+     * @return the future result of the call
+     */
+    public <T> CompletableFuture<T> submit(Call<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> this.run(call, result));
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private <T> void run(Call<T> call, CompletableFuture<T> result) {
+        try {
+            running.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+            return;
+        }
+        try {
+            result.complete(call.call());
+        } catch (Throwable e) {
+            result.completeExceptionally(e);
+        } finally {
+            running.release();
+        }
+    }
+
+    /**
+     * stops taking calls and waits for the calls in flight to end
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor is looked up at runtime, so the class still compiles for Java 8
+     *
+     * @return an executor starting a virtual thread for each task or null if the JVM has no virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // no such method before Java 19, a preview feature which is not enabled on Java 19 and 20
+            return null;
+        }
+    }
+
+    /**
+     * a call on the registration system
+     *
+     * @param <T> type of the result of the call
+     */
+    public interface Call<T> {
+        T call() throws SQLException, NullException, InputException;
+    }
+
+    /**
+     * daemon threads named after the facade, so a forgotten close does not keep the JVM alive
+     */
+    private static final class PlatformThreads implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "registration-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.company.Controller;
+
+/**
+ * result of one request of a registerAll batch, the messages are the ones register throws
+ */
+public enum RegistrationOutcome {
+    ENROLLED("Student was enrolled."),
+    NO_SUCH_COURSE("Non existing course id!"),
+    NO_SUCH_STUDENT("Non existing student id!"),
+    COURSE_FULL("Course has no free places!"),
+    ALREADY_ENROLLED("Student is already enrolled!"),
+    CREDITS_EXCEEDED("Warning! Total number of credits exceeded!");
+
+    private final String message;
+
+    RegistrationOutcome(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
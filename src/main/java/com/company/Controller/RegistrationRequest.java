@@ -0,0 +1,30 @@
+package com.company.Controller;
+
+/**
+ * a student who wants to enroll to a course, one entry of a registerAll batch
+ */
+public class RegistrationRequest {
+    private final long studentId;
+    private final long courseId;
+
+    public RegistrationRequest(long studentId, long courseId) {
+        this.studentId = studentId;
+        this.courseId = courseId;
+    }
+
+    public long getStudentId() {
+        return studentId;
+    }
+
+    public long getCourseId() {
+        return courseId;
+    }
+
+    @Override
+    public String toString() {
+        return "RegistrationRequest{" +
+                "studentId=" + studentId +
+                ", courseId=" + courseId +
+                '}';
+    }
+}
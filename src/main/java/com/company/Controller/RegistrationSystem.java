@@ -1,7 +1,12 @@
 package com.company.Controller;
 
+import com.company.Database.EnrollmentIndex;
+import com.company.Database.TransactionCallback;
+import com.company.Database.UnitOfWork;
 import com.company.Exceptions.InputException;
 import com.company.Exceptions.NullException;
+import com.company.Exceptions.StaleEntityException;
+import com.company.Exceptions.UncheckedSQLException;
 import com.company.Model.Course;
 import com.company.Model.Student;
 import com.company.Model.Teacher;
@@ -10,19 +15,34 @@ import com.company.Repository.*;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class RegistrationSystem {
-    private StudentRepository studentsRepo;
-    private TeacherRepository teachersRepo;
-    private CourseRepository coursesRepo;
-
-    public RegistrationSystem(StudentRepository studentsRepo,
-                              TeacherRepository teachersRepo,
-                              CourseRepository coursesRepo) {
+    // how many times a unit runs when a row it updates is changed by another writer in between
+    private static final int MAX_STALE_ATTEMPTS = 5;
+
+    private IStudentRepository studentsRepo;
+    private ICrudRepository<Teacher> teachersRepo;
+    private ICourseRepository coursesRepo;
+    private UnitOfWork unitOfWork;
+    // built from the repositories on first use, changed after each committed enrollment
+    private volatile EnrollmentIndex enrollments;
+    // seat counters of the courses, built together with the enrollment index
+    private volatile AdmissionGate admissions;
+    // held while the index is built from the database, a lock and not a monitor so virtual threads are not pinned
+    private final ReentrantLock enrollmentsLock = new ReentrantLock();
+
+    public RegistrationSystem(IStudentRepository studentsRepo,
+                              ICrudRepository<Teacher> teachersRepo,
+                              ICourseRepository coursesRepo,
+                              UnitOfWork unitOfWork) {
         this.studentsRepo = studentsRepo;
         this.teachersRepo = teachersRepo;
         this.coursesRepo = coursesRepo;
+        this.unitOfWork = unitOfWork;
     }
 
 
@@ -61,14 +81,25 @@ public class RegistrationSystem {
      * @throws SQLException if connection to database could not succeed
      */
     public List<Course> retrieveCoursesWithFreePlaces() throws SQLException {
-        List<Course> freePlaces = coursesRepo.findAll()
+        List<Course> freePlaces = this.retrieveFreePlaces()
                 .stream()
-                .filter(c -> c.getStudentsEnrolled().size() < c.getMaxEnrollment())
+                .map(EnrollmentCount::getCourse)
                 .collect(Collectors.toList());
 
         return freePlaces;
     }
 
+    /**
+     * finds the courses with free places together with the number of their students,
+     * the students are counted by the repository, so no roster is loaded
+     *
+     * @return courses with free places and the number of their students
+     * @throws SQLException if connection to database could not succeed
+     */
+    public List<EnrollmentCount> retrieveFreePlaces() throws SQLException {
+        return coursesRepo.findWithFreePlaces();
+    }
+
     /**
      * filters the Student's repository list by maximum credits number
      *
@@ -107,25 +138,63 @@ public class RegistrationSystem {
      * @throws SQLException   if connection to database could not succeed
      */
     public boolean register(Course course, Student student) throws InputException, SQLException, NullException {
+        if (course == null) {
+            throw new InputException("Non existing course id!");
+        }
+        if (student == null) {
+            throw new InputException("Non existing student id!");
+        }
+        EnrollmentIndex index = this.enrollments();
+        AdmissionGate.Reservation seats = admissions.reservation();
+        // the checks and both updates run in one transaction, so the enrollment is written completely or not at all
+        Student enrolled;
+        try {
+            enrolled = this.executeOptimistic(() -> this.enroll(index, seats, course.getCourseId(), student.getStudentId()));
+        } catch (InputException | SQLException | NullException | RuntimeException e) {
+            seats.releaseAll();
+            throw e;
+        }
+        index.enroll(student.getStudentId(), course.getCourseId());
+
+        // the given objects show the new state; a list which was not loaded yet is left alone, it contains
+        // the enrollment when it is loaded, and loading it here would read the whole roster for every registration
+        if (LazyList.isLoaded(course.getStudentsEnrolled()) && !course.getStudentsEnrolled().contains(student))
+            course.getStudentsEnrolled().add(student);
+        student.setTotalCredits(enrolled.getTotalCredits());
+        if (LazyList.isLoaded(student.getEnrolledCourses()) && !student.getEnrolledCourses().contains(course))
+            student.getEnrolledCourses().add(course);
+        return true;
+    }
+
+    /**
+     * enrolls the student to the course using the state stored in the repositories,
+     * it loads the data itself because it may run again after a deadlock or a write of another JVM,
+     * duplicates are checked on the enrollment index, so the roster of the course is not loaded,
+     * and the seat is taken from the admission gate, so concurrent registrations can not overbook the course;
+     * both only know the enrollments of this JVM, so they are compared with the database once the course row
+     * is written (see checkRoster)
+     *
+     * @return the enrolled student
+     */
+    private Student enroll(EnrollmentIndex index, AdmissionGate.Reservation seats, long courseId, long studentId)
+            throws InputException, SQLException, NullException {
+        // the seat of a run which ended in a deadlock is given back before the work runs again
+        seats.releaseAll();
         //checks if all data is correct
-        if (course == null || coursesRepo.findOne(course.getCourseId()) == null) {
+        Course course = coursesRepo.findOne(courseId);
+        if (course == null) {
             throw new InputException("Non existing course id!");
         }
 
-        if (student == null || studentsRepo.findOne(student.getStudentId()) == null) {
+        Student student = studentsRepo.findOne(studentId);
+        if (student == null) {
             throw new InputException("Non existing student id!");
         }
-        List<Student> courseStudents = course.getStudentsEnrolled();
-
-        if (courseStudents.size() == course.getMaxEnrollment()) {
+        if (!seats.take(courseId, course.getMaxEnrollment())) {
             throw new InputException("Course has no free places!");
         }
 
-        boolean found = courseStudents
-                .stream()
-                .anyMatch(s -> s.compareTo(student));
-
-        if (found)
+        if (index.isEnrolled(studentId, courseId))
             throw new InputException("Student is already enrolled!");
 
         //if student has over 30 credits after enrolling to this course
@@ -133,17 +202,112 @@ public class RegistrationSystem {
         if (studCredits > 30)
             throw new InputException("Warning! Total number of credits exceeded!");
 
-        // updating with the new data
-        courseStudents.add(student);
-        course.setStudentsEnrolled(courseStudents);
+        // updating with the new data, the course is written with its roster as loaded (the JDBC repository
+        // skips a roster which was never loaded) and the student writes the Enrolled tuple with his courses
         coursesRepo.update(course);
+        this.checkRoster(index, seats, Collections.singleton(courseId));
         student.setTotalCredits(studCredits);
-        List<Course> studCourses = student.getEnrolledCourses();
-        studCourses.add(course);
-        student.setEnrolledCourses(studCourses);
+        student.getEnrolledCourses().add(course);
         studentsRepo.update(student);
 
-        return true;
+        return student;
+    }
+
+    /**
+     * enrolls a batch of students to courses, every request is checked like in register against one snapshot
+     * of the courses, the students and the enrollment index, taking the requests accepted before it into account,
+     * and all accepted enrollments are written in one transaction
+     *
+     * @param requests the (studentId, courseId) requests
+     * @return the outcome of each request, in the order of the requests
+     * @throws NullException if a request is null
+     * @throws SQLException  if connection to database could not succeed, then no request is enrolled
+     */
+    public List<RegistrationOutcome> registerAll(List<RegistrationRequest> requests) throws SQLException, NullException {
+        if (requests.contains(null))
+            throw new NullException("Null request!");
+        EnrollmentIndex index = this.enrollments();
+        AdmissionGate.Reservation seats = admissions.reservation();
+        List<RegistrationOutcome> outcomes;
+        try {
+            outcomes = this.executeOptimistic(() -> this.enrollAll(index, seats, requests));
+        } catch (InputException e) {
+            seats.releaseAll();
+            // the work does not throw it
+            throw new IllegalStateException(e);
+        } catch (SQLException | NullException | RuntimeException e) {
+            seats.releaseAll();
+            throw e;
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            if (outcomes.get(i) == RegistrationOutcome.ENROLLED)
+                index.enroll(requests.get(i).getStudentId(), requests.get(i).getCourseId());
+        }
+        return outcomes;
+    }
+
+    /**
+     * checks the requests in memory and writes the accepted ones, each course and student is loaded once,
+     * it may run again after a deadlock or a write of another JVM
+     */
+    private List<RegistrationOutcome> enrollAll(EnrollmentIndex index, AdmissionGate.Reservation seats,
+                                                List<RegistrationRequest> requests) throws SQLException, NullException {
+        seats.releaseAll();
+        Map<Long, Course> courses = new HashMap<>();
+        Map<Long, Student> students = new HashMap<>();
+        // what the requests accepted so far add to the snapshot, their seats are taken from the admission gate
+        Set<Long> changedCourses = new HashSet<>();
+        Map<Long, Integer> addedCredits = new HashMap<>();
+        Map<Long, Set<Long>> addedCourses = new HashMap<>();
+
+        List<RegistrationOutcome> outcomes = new ArrayList<>(requests.size());
+        long[] studentIds = new long[requests.size()];
+        long[] courseIds = new long[requests.size()];
+        int accepted = 0;
+        for (RegistrationRequest request : requests) {
+            long courseId = request.getCourseId();
+            long studentId = request.getStudentId();
+            if (!courses.containsKey(courseId))
+                courses.put(courseId, coursesRepo.findOne(courseId));
+            if (!students.containsKey(studentId))
+                students.put(studentId, studentsRepo.findOne(studentId));
+            Course course = courses.get(courseId);
+            Student student = students.get(studentId);
+
+            RegistrationOutcome outcome;
+            int credits = student == null ? 0 : student.getTotalCredits() + addedCredits.getOrDefault(studentId, 0);
+            if (course == null)
+                outcome = RegistrationOutcome.NO_SUCH_COURSE;
+            else if (student == null)
+                outcome = RegistrationOutcome.NO_SUCH_STUDENT;
+            else if (!seats.take(courseId, course.getMaxEnrollment()))
+                outcome = RegistrationOutcome.COURSE_FULL;
+            else if (index.isEnrolled(studentId, courseId)
+                    || addedCourses.getOrDefault(studentId, Collections.emptySet()).contains(courseId))
+                outcome = RegistrationOutcome.ALREADY_ENROLLED;
+            else if (credits + course.getCredits() > 30)
+                outcome = RegistrationOutcome.CREDITS_EXCEEDED;
+            else {
+                outcome = RegistrationOutcome.ENROLLED;
+                changedCourses.add(courseId);
+                addedCredits.merge(studentId, course.getCredits(), Integer::sum);
+                addedCourses.computeIfAbsent(studentId, id -> new HashSet<>()).add(courseId);
+                studentIds[accepted] = studentId;
+                courseIds[accepted] = courseId;
+                accepted++;
+            }
+            // a request refused after its seat was taken gives the seat back
+            if (outcome == RegistrationOutcome.ALREADY_ENROLLED || outcome == RegistrationOutcome.CREDITS_EXCEEDED)
+                seats.release(courseId);
+            outcomes.add(outcome);
+        }
+
+        // like in register the courses are written before the Enrolled tuples, which removes them from the caches
+        for (Long courseId : changedCourses)
+            coursesRepo.update(courses.get(courseId));
+        this.checkRoster(index, seats, changedCourses);
+        studentsRepo.enrollAll(Arrays.copyOf(studentIds, accepted), Arrays.copyOf(courseIds, accepted));
+        return outcomes;
     }
 
     /**
@@ -173,29 +337,28 @@ public class RegistrationSystem {
                 .filter(el -> el.compareTo(course))
                 .findFirst();
 
-        coursesRepo.delete(course.getCourseId());
-        this.updateStudentsCredits();
+        unitOfWork.execute(() -> {
+            Course stored = coursesRepo.findOne(course.getCourseId());
+            if (stored == null)
+                return null;
+            // only the roster loses the credits, taken while its Enrolled tuples still exist
+            studentsRepo.addCredits(stored.getCourseId(), -stored.getCredits());
+            coursesRepo.delete(stored.getCourseId());
+            return null;
+        });
+        this.enrollments().removeCourse(course.getCourseId());
+        admissions.forget(course.getCourseId());
         return true;
     }
 
     /**
-     * recalculate the sum of credits and updates the credits sum for each student
+     * recalculate the sum of credits and updates the credits sum for each student,
+     * the repository recomputes all sums at once, so no student is loaded
      *
      * @throws SQLException if connection to database could not succeed
      */
     public void updateStudentsCredits() throws SQLException {
-        this.getAllStudents()
-                .forEach(s -> {
-                    s.setTotalCredits(s.getEnrolledCourses()
-                            .stream()
-                            .mapToInt(Course::getCredits)
-                            .reduce(0, Integer::sum));
-                    try {
-                        studentsRepo.update(s);
-                    } catch (SQLException | NullException e) {
-                        e.printStackTrace();
-                    }
-                });
+        this.studentsRepo.recomputeCredits();
     }
 
     /**
@@ -226,11 +389,31 @@ public class RegistrationSystem {
      * @throws SQLException  if connection to database could not succeed
      */
     public void modifyCredits(Course c) throws NullException, SQLException {
-        /* update course in the repo */
-        this.coursesRepo.update(c);
-
-        /* update all students */
-        this.updateStudentsCredits();
+        if (c == null)
+            throw new NullException("Null course!");
+        try {
+            this.executeOptimistic(() -> {
+                Course stored = coursesRepo.findOne(c.getCourseId());
+                if (stored == null)
+                    return null;
+                int oldCredits = stored.getCredits();
+                /* update course in the repo, the changes are written over the row as read now, so a retry sees the other writer */
+                stored.setName(c.getName());
+                stored.setTeacher(c.getTeacher());
+                stored.setMaxEnrollment(c.getMaxEnrollment());
+                stored.setCredits(c.getCredits());
+                if (coursesRepo.update(stored) != null)
+                    return null;
+                c.setVersion(stored.getVersion());
+
+                /* update only the students enrolled to the course by the difference of the credits */
+                studentsRepo.addCredits(c.getCourseId(), c.getCredits() - oldCredits);
+                return null;
+            });
+        } catch (InputException e) {
+            // the work does not throw it
+            throw new IllegalStateException(e);
+        }
     }
 
     /**
@@ -241,10 +424,115 @@ public class RegistrationSystem {
      * @throws SQLException  if connection to database could not succeed
      */
     public boolean addCourse(Course c) throws SQLException, NullException {
-        this.coursesRepo.save(c);
+        if (this.coursesRepo.save(c) == null) {
+            this.enrollments().setRoster(c.getCourseId(), c.getStudentsEnrolled()
+                    .stream()
+                    .mapToLong(Student::getStudentId)
+                    .toArray());
+            admissions.forget(c.getCourseId());
+        }
         return true;
     }
 
+    /**
+     * runs the work as one unit and runs it again when a row it updates was changed by another writer since the work
+     * read it, the work reads the rows itself, so the next attempt sees the other write;
+     * a unit joined to an outer one is not run again, the outer unit would read the same rows
+     *
+     * @param work the work to be done
+     * @return the result of the work
+     * @throws StaleEntityException if the rows kept changing for MAX_STALE_ATTEMPTS attempts
+     */
+    private <T> T executeOptimistic(TransactionCallback<T> work) throws SQLException, NullException, InputException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return unitOfWork.execute(work);
+            } catch (StaleEntityException e) {
+                if (attempt >= MAX_STALE_ATTEMPTS || unitOfWork.inTransaction())
+                    throw e;
+                this.backOff(attempt);
+            }
+        }
+    }
+
+    /**
+     * waits a random time growing with the attempt, so the writers of one row, on this or other JVMs,
+     * do not all run again at the same moment and conflict once more
+     */
+    private void backOff(int attempt) throws SQLException {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1, 10) * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while retrying a stale update!", e);
+        }
+    }
+
+    /**
+     * compares the rosters of the courses in the database with the enrollment index, which misses the
+     * enrollments written by other JVMs, so the checks made on it and on the admission gate may be wrong;
+     * the course rows were updated before with their version checked, so every registration to them which
+     * committed since they were read makes the update fail, and the rosters read here are the current ones
+     *
+     * @throws StaleEntityException if a roster differs, after the seats of the unit were given back and the index
+     *                              and the seat counters of the courses were rebuilt from the database,
+     *                              so the unit runs again with the checks made on the current rosters
+     * @throws SQLException         if connection to database could not succeed
+     */
+    private void checkRoster(EnrollmentIndex index, AdmissionGate.Reservation seats, Collection<Long> courseIds)
+            throws SQLException {
+        Map<Long, long[]> differing = new HashMap<>();
+        for (Long courseId : courseIds) {
+            long[] roster = coursesRepo.findStudentIds(courseId);
+            // the same number of students may still be other students, the ids are compared in ascending order
+            long[] known = index.studentsOf(courseId);
+            Arrays.sort(known);
+            if (!Arrays.equals(roster, known))
+                differing.put(courseId, roster);
+        }
+        if (differing.isEmpty())
+            return;
+        // the seats are given back to the counters they were taken from, before these are dropped
+        seats.releaseAll();
+        for (Map.Entry<Long, long[]> entry : differing.entrySet()) {
+            index.setRoster(entry.getKey(), entry.getValue());
+            admissions.forget(entry.getKey());
+        }
+        throw new StaleEntityException("Courses " + differing.keySet() + " have enrollments written by another JVM!");
+    }
+
+    /**
+     * gives the enrollment index, the first call builds it from the rosters of all courses
+     *
+     * @return the enrollment index
+     * @throws SQLException if connection to database could not succeed
+     */
+    private EnrollmentIndex enrollments() throws SQLException {
+        EnrollmentIndex index = enrollments;
+        if (index != null)
+            return index;
+        enrollmentsLock.lock();
+        try {
+            if (enrollments == null) {
+                index = new EnrollmentIndex();
+                try (Stream<Course> courses = this.coursesRepo.streamAll()) {
+                    EnrollmentIndex building = index;
+                    courses.forEach(c -> building.setRoster(c.getCourseId(), c.getStudentsEnrolled()
+                            .stream()
+                            .mapToLong(Student::getStudentId)
+                            .toArray()));
+                } catch (UncheckedSQLException e) {
+                    throw e.getCause();
+                }
+                admissions = new AdmissionGate(index);
+                enrollments = index;
+            }
+            return enrollments;
+        } finally {
+            enrollmentsLock.unlock();
+        }
+    }
+
     /**
      * gets all students from the repository
      *
@@ -255,6 +543,30 @@ public class RegistrationSystem {
         return this.studentsRepo.findAll();
     }
 
+    /**
+     * gets one page of students ordered by id
+     *
+     * @param afterId id of the last student of the previous page or null for the first page
+     * @param limit   maximum number of students of the page
+     * @return the page of students
+     * @throws SQLException if connection to database could not succeed
+     */
+    public Page<Student> getStudentsPage(Long afterId, int limit) throws SQLException {
+        return this.studentsRepo.findPage(afterId, limit);
+    }
+
+    /**
+     * gets one page of courses ordered by id
+     *
+     * @param afterId id of the last course of the previous page or null for the first page
+     * @param limit   maximum number of courses of the page
+     * @return the page of courses
+     * @throws SQLException if connection to database could not succeed
+     */
+    public Page<Course> getCoursesPage(Long afterId, int limit) throws SQLException {
+        return this.coursesRepo.findPage(afterId, limit);
+    }
+
     /**
      * gets all courses from the repository
      *
@@ -275,6 +587,16 @@ public class RegistrationSystem {
         return this.teachersRepo.findAll();
     }
 
+    /**
+     * counts the teachers in the repository without loading them
+     *
+     * @return number of teachers
+     * @throws SQLException if connection to database could not succeed
+     */
+    public long countTeachers() throws SQLException {
+        return this.teachersRepo.count();
+    }
+
     /**
      * searches for a student in the repository by the ID
      *
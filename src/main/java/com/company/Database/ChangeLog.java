@@ -0,0 +1,182 @@
+package com.company.Database;
+
+import com.company.Model.Course;
+import com.company.Model.Student;
+import com.company.Model.Teacher;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+
+/**
+ * the changes of the tables written by one unit of work, encoded as records which are applied again in the same order
+ * every record repeats the whole row, so applying it does not depend on the rows it replaced
+ */
+final class ChangeLog {
+    private static final byte PUT_STUDENT = 1;
+    private static final byte REMOVE_STUDENT = 2;
+    private static final byte PUT_TEACHER = 3;
+    private static final byte REMOVE_TEACHER = 4;
+    private static final byte PUT_COURSE = 5;
+    private static final byte REMOVE_COURSE = 6;
+    private static final byte ENROLL = 7;
+    private static final byte UNENROLL = 8;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+
+    void putStudent(Student student) {
+        try {
+            out.writeByte(PUT_STUDENT);
+            out.writeLong(student.getStudentId());
+            writeString(student.getFirstName());
+            writeString(student.getLastName());
+            out.writeInt(student.getTotalCredits());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void removeStudent(long id) {
+        this.writeId(REMOVE_STUDENT, id);
+    }
+
+    void putTeacher(Teacher teacher) {
+        try {
+            out.writeByte(PUT_TEACHER);
+            out.writeLong(teacher.getTeacherId());
+            writeString(teacher.getFirstName());
+            writeString(teacher.getLastName());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void removeTeacher(long id) {
+        this.writeId(REMOVE_TEACHER, id);
+    }
+
+    /**
+     * @param teacherId only counts if hasTeacher is true
+     */
+    void putCourse(long id, String name, long teacherId, boolean hasTeacher, int maxEnrollment, int credits) {
+        try {
+            out.writeByte(PUT_COURSE);
+            out.writeLong(id);
+            writeString(name);
+            out.writeBoolean(hasTeacher);
+            out.writeLong(teacherId);
+            out.writeInt(maxEnrollment);
+            out.writeInt(credits);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void removeCourse(long id) {
+        this.writeId(REMOVE_COURSE, id);
+    }
+
+    void enroll(long studentId, long courseId) {
+        this.writePair(ENROLL, studentId, courseId);
+    }
+
+    void unenroll(long studentId, long courseId) {
+        this.writePair(UNENROLL, studentId, courseId);
+    }
+
+    boolean isEmpty() {
+        return bytes.size() == 0;
+    }
+
+    int size() {
+        return bytes.size();
+    }
+
+    byte[] toByteArray() {
+        return bytes.toByteArray();
+    }
+
+    private void writeId(byte type, long id) {
+        try {
+            out.writeByte(type);
+            out.writeLong(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writePair(byte type, long first, long second) {
+        try {
+            out.writeByte(type);
+            out.writeLong(first);
+            out.writeLong(second);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null)
+            out.writeUTF(value);
+    }
+
+    /**
+     * applies the records of a unit to the database, the caller runs inside a unit of the database
+     *
+     * @param records the records written by a ChangeLog
+     * @throws IOException  if the records are damaged
+     * @throws SQLException if a record violates a constraint of the tables
+     */
+    static void apply(byte[] records, InMemoryDatabase database) throws IOException, SQLException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(records));
+        int type;
+        while ((type = in.read()) != -1) {
+            switch (type) {
+                case PUT_STUDENT:
+                    database.putStudent(new Student(in.readLong(), readString(in), readString(in), in.readInt()));
+                    break;
+                case REMOVE_STUDENT:
+                    database.removeStudent(in.readLong());
+                    break;
+                case PUT_TEACHER:
+                    database.putTeacher(new Teacher(in.readLong(), readString(in), readString(in)));
+                    break;
+                case REMOVE_TEACHER:
+                    database.removeTeacher(in.readLong());
+                    break;
+                case PUT_COURSE: {
+                    long id = in.readLong();
+                    String name = readString(in);
+                    boolean hasTeacher = in.readBoolean();
+                    long teacherId = in.readLong();
+                    Teacher teacher = hasTeacher ? new Teacher(teacherId, null, null) : null;
+                    database.putCourse(new Course(id, name, teacher, in.readInt(), in.readInt()));
+                    break;
+                }
+                case REMOVE_COURSE:
+                    database.removeCourse(in.readLong());
+                    break;
+                case ENROLL:
+                    database.enroll(in.readLong(), in.readLong());
+                    break;
+                case UNENROLL:
+                    database.unenroll(in.readLong(), in.readLong());
+                    break;
+                default:
+                    throw new IOException("Unknown record type " + type + "!");
+            }
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        if (!in.readBoolean())
+            return null;
+        return in.readUTF();
+    }
+}
@@ -0,0 +1,178 @@
+package com.company.Database;
+
+import java.util.Arrays;
+
+/**
+ * set of non negative int values split in chunks of 65536 values by their high 16 bits,
+ * a chunk keeps its low 16 bits in a sorted char array while it is small and in a bitmap of 1024 words
+ * once it holds more than ARRAY_LIMIT values, so sparse and dense sets both stay small
+ */
+final class CompressedBitmap {
+    // an array chunk with more values would be larger than the 8 KB of a bitmap chunk
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys = new char[2];
+    private Chunk[] chunks = new Chunk[2];
+    private int chunkCount;
+    private int cardinality;
+
+    boolean contains(int value) {
+        int i = this.indexOf((char) (value >>> 16));
+        return i >= 0 && chunks[i].contains((char) value);
+    }
+
+    /**
+     * @return true if the value was not in the set
+     */
+    boolean add(int value) {
+        char key = (char) (value >>> 16);
+        int i = this.indexOf(key);
+        if (i < 0) {
+            i = -i - 1;
+            if (chunkCount == keys.length) {
+                keys = Arrays.copyOf(keys, chunkCount * 2);
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            }
+            System.arraycopy(keys, i, keys, i + 1, chunkCount - i);
+            System.arraycopy(chunks, i, chunks, i + 1, chunkCount - i);
+            keys[i] = key;
+            chunks[i] = new Chunk();
+            chunkCount++;
+        }
+        if (!chunks[i].add((char) value))
+            return false;
+        cardinality++;
+        return true;
+    }
+
+    /**
+     * @return true if the value was in the set
+     */
+    boolean remove(int value) {
+        int i = this.indexOf((char) (value >>> 16));
+        if (i < 0 || !chunks[i].remove((char) value))
+            return false;
+        cardinality--;
+        if (chunks[i].size == 0) {
+            System.arraycopy(keys, i + 1, keys, i, chunkCount - i - 1);
+            System.arraycopy(chunks, i + 1, chunks, i, chunkCount - i - 1);
+            chunks[--chunkCount] = null;
+        }
+        return true;
+    }
+
+    /**
+     * @return number of values, kept up to date by add and remove
+     */
+    int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * @return the values in ascending order
+     */
+    int[] toArray() {
+        int[] values = new int[cardinality];
+        int n = 0;
+        for (int c = 0; c < chunkCount; c++) {
+            int high = keys[c] << 16;
+            Chunk chunk = chunks[c];
+            if (chunk.bits == null) {
+                for (int j = 0; j < chunk.size; j++)
+                    values[n++] = high | chunk.values[j];
+            } else {
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    long word = chunk.bits[w];
+                    while (word != 0) {
+                        values[n++] = high | (w << 6) | Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, chunkCount, key);
+    }
+
+    /**
+     * the low 16 bits of the values of one chunk, values is used while bits is null
+     */
+    private static final class Chunk {
+        private char[] values = new char[4];
+        private long[] bits;
+        private int size;
+
+        boolean contains(char low) {
+            if (bits != null)
+                return (bits[low >>> 6] & (1L << low)) != 0;
+            return Arrays.binarySearch(values, 0, size, low) >= 0;
+        }
+
+        boolean add(char low) {
+            if (bits == null) {
+                int i = Arrays.binarySearch(values, 0, size, low);
+                if (i >= 0)
+                    return false;
+                if (size < ARRAY_LIMIT) {
+                    i = -i - 1;
+                    if (size == values.length)
+                        values = Arrays.copyOf(values, Math.min(size * 2, ARRAY_LIMIT));
+                    System.arraycopy(values, i, values, i + 1, size - i);
+                    values[i] = low;
+                    size++;
+                    return true;
+                }
+                this.toBitmap();
+            }
+            long mask = 1L << low;
+            if ((bits[low >>> 6] & mask) != 0)
+                return false;
+            bits[low >>> 6] |= mask;
+            size++;
+            return true;
+        }
+
+        boolean remove(char low) {
+            if (bits == null) {
+                int i = Arrays.binarySearch(values, 0, size, low);
+                if (i < 0)
+                    return false;
+                System.arraycopy(values, i + 1, values, i, size - i - 1);
+                size--;
+                return true;
+            }
+            long mask = 1L << low;
+            if ((bits[low >>> 6] & mask) == 0)
+                return false;
+            bits[low >>> 6] &= ~mask;
+            size--;
+            if (size == ARRAY_LIMIT)
+                this.toArray();
+            return true;
+        }
+
+        private void toBitmap() {
+            bits = new long[BITMAP_WORDS];
+            for (int j = 0; j < size; j++)
+                bits[values[j] >>> 6] |= 1L << values[j];
+            values = null;
+        }
+
+        private void toArray() {
+            values = new char[ARRAY_LIMIT];
+            int n = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = bits[w];
+                while (word != 0) {
+                    values[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            bits = null;
+        }
+    }
+}
@@ -0,0 +1,540 @@
+package com.company.Database;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * bounded pool of database connections shared by all the repositories
+ * connections are borrowed with getConnection() and given back to the pool with close()
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+    private final String dbUrl;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final int minIdle;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final int statementCacheSize;
+
+    // idle connections, the most recently returned one is at the head
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    // one permit for every connection that may be handed out
+    private final Semaphore permits;
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed = false;
+    private PrintWriter logWriter;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong cacheEvictions = new AtomicLong();
+
+    public ConnectionPool(String dbUrl, String user, String password, int maxSize) {
+        this(dbUrl, user, password, maxSize, 1, 5000, 300000, 5000, 50);
+    }
+
+    /**
+     * @param dbUrl                    jdbc url of the database
+     * @param user                     database user
+     * @param password                 password of the database user
+     * @param maxSize                  maximum number of connections open at the same time
+     * @param minIdle                  number of idle connections kept open by the eviction
+     * @param acquireTimeoutMillis     how long getConnection() waits for a free connection
+     * @param idleTimeoutMillis        idle connections older than this are closed
+     * @param validationIntervalMillis connections idle for longer than this are validated before being handed out
+     * @param statementCacheSize       number of prepared statements cached for every connection, 0 disables the cache
+     */
+    public ConnectionPool(String dbUrl, String user, String password, int maxSize, int minIdle,
+                          long acquireTimeoutMillis, long idleTimeoutMillis, long validationIntervalMillis,
+                          int statementCacheSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Pool size must be at least 1!");
+        this.dbUrl = dbUrl;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.minIdle = Math.min(minIdle, maxSize);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(idleTimeoutMillis / 2, 1000);
+        this.evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * borrows a connection from the pool, opening a new one if no idle connection is available
+     *
+     * @return a connection which goes back to the pool when it is closed
+     * @throws SQLTimeoutException if no connection got free in the acquire timeout
+     * @throws SQLException        if the pool is closed or a new connection could not be opened
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed)
+            throw new SQLException("Connection pool is closed!");
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + acquireTimeoutMillis + " ms waiting for a connection!");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection!", e);
+        }
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null)
+                pooled = open();
+            recordWait(System.nanoTime() - start);
+            borrowed.incrementAndGet();
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("The pool only opens connections with its own credentials!");
+    }
+
+    /**
+     * takes the most recently used idle connection, dropping the ones which are no longer valid
+     *
+     * @return a valid idle connection or null if there is none
+     */
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - pooled.lastUsed < validationIntervalMillis || pooled.isValid())
+                return pooled;
+            destroy(pooled);
+        }
+        return null;
+    }
+
+    private PooledConnection open() throws SQLException {
+        PooledConnection pooled = new PooledConnection(DriverManager.getConnection(dbUrl, user, password));
+        created.incrementAndGet();
+        return pooled;
+    }
+
+    /**
+     * gives a borrowed connection back, the connection is dropped if it broke while it was used
+     */
+    private void release(PooledConnection pooled) {
+        try {
+            if (closed || pooled.broken || !pooled.reset()) {
+                destroy(pooled);
+            } else {
+                pooled.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        try {
+            pooled.physical.close();
+        } catch (SQLException ignored) {
+            // the connection is discarded anyway
+        }
+        destroyed.incrementAndGet();
+    }
+
+    /**
+     * closes the connections that were idle for longer than the idle timeout, keeping at least minIdle of them
+     */
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        // the oldest connections are at the tail of the deque
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext() && idle.size() > minIdle) {
+            PooledConnection pooled = it.next();
+            if (now - pooled.lastUsed > idleTimeoutMillis && idle.remove(pooled))
+                destroy(pooled);
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        long max;
+        do {
+            max = maxWaitNanos.get();
+        } while (nanos > max && !maxWaitNanos.compareAndSet(max, nanos));
+    }
+
+    /**
+     * closes all idle connections, borrowed connections are closed when they are given back
+     */
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null)
+            destroy(pooled);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    public long getDestroyedCount() {
+        return destroyed.get();
+    }
+
+    public long getBorrowCount() {
+        return borrowed.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    /**
+     * @return number of statements executed on the pooled connections, each of them is one round trip to the database
+     */
+    public long getStatementCount() {
+        return executed.get();
+    }
+
+    public long getStatementCacheHits() {
+        return cacheHits.get();
+    }
+
+    public long getStatementCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    public long getStatementCacheEvictions() {
+        return cacheEvictions.get();
+    }
+
+    /**
+     * @return share of the prepared statements that were found in the statement cache
+     */
+    public double getStatementCacheHitRate() {
+        long hits = cacheHits.get();
+        long total = hits + cacheMisses.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public double getAverageWaitMillis() {
+        long count = borrowed.get();
+        return count == 0 ? 0 : totalWaitNanos.get() / 1e6 / count;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool{" +
+                "active=" + getActiveCount() +
+                ", idle=" + getIdleCount() +
+                ", maxSize=" + maxSize +
+                ", created=" + getCreatedCount() +
+                ", borrowed=" + getBorrowCount() +
+                ", timeouts=" + getTimeoutCount() +
+                ", statements=" + getStatementCount() +
+                ", statementCacheHitRate=" + String.format("%.3f", getStatementCacheHitRate()) +
+                ", avgWaitMs=" + String.format("%.3f", getAverageWaitMillis()) +
+                ", maxWaitMs=" + String.format("%.3f", getMaxWaitMillis()) +
+                '}';
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this))
+            return iface.cast(this);
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * a physical connection owned by the pool
+     */
+    private class PooledConnection {
+        private final Connection physical;
+        private volatile long lastUsed = System.currentTimeMillis();
+        private volatile boolean broken = false;
+        private final StatementCache statementCache = new StatementCache(statementCacheSize);
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        boolean isValid() {
+            try {
+                return physical.isValid(1);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * rolls back an unfinished transaction and restores auto commit before the connection is reused
+         *
+         * @return false if the connection could not be reset
+         */
+        boolean reset() {
+            try {
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new ConnectionHandle(this));
+        }
+    }
+
+    /**
+     * the connection given to a borrower, closing it returns the physical connection to the pool
+     * together with closing the statements and result sets the borrower left open
+     * prepared statements are taken from the statement cache of the connection and put back into it on close
+     */
+    private class ConnectionHandle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final List<Statement> statements = new ArrayList<>();
+        private final Map<PreparedStatement, String> cachedStatements = new IdentityHashMap<>();
+        private final List<ResultSet> results = new ArrayList<>();
+        private boolean returned = false;
+
+        ConnectionHandle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        closeStatements();
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pooled.physical;
+            }
+            if (returned)
+                throw new SQLException("Connection was already given back to the pool!");
+            try {
+                if (method.getName().equals("prepareStatement") && isCacheable(method))
+                    return prepareCached(proxy, method, args);
+                Object result = method.invoke(pooled.physical, args);
+                if (result instanceof Statement) {
+                    statements.add((Statement) result);
+                    return Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                            new Class<?>[]{method.getReturnType()}, new StatementHandle((Statement) result, this, (Connection) proxy, false));
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                // SQL state class 08 means the connection itself failed
+                if (cause instanceof SQLException && isConnectionError((SQLException) cause))
+                    pooled.broken = true;
+                throw cause;
+            }
+        }
+
+        /**
+         * only prepareStatement(sql) and prepareStatement(sql, resultSetType, resultSetConcurrency) are cached
+         */
+        private boolean isCacheable(Method method) {
+            Class<?>[] types = method.getParameterTypes();
+            return types.length == 1 || (types.length == 3 && types[1] == int.class && types[2] == int.class);
+        }
+
+        private Object prepareCached(Object proxy, Method method, Object[] args) throws Throwable {
+            String key = args.length == 1 ? (String) args[0] : args[0] + "|" + args[1] + "|" + args[2];
+            PreparedStatement statement = pooled.statementCache.take(key);
+            if (statement != null) {
+                cacheHits.incrementAndGet();
+            } else {
+                cacheMisses.incrementAndGet();
+                statement = (PreparedStatement) method.invoke(pooled.physical, args);
+            }
+            cachedStatements.put(statement, key);
+            return Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, new StatementHandle(statement, this, (Connection) proxy, true));
+        }
+
+        /**
+         * puts a cached statement back into the statement cache as soon as the borrower closes it,
+         * so the next prepareStatement with the same sql reuses it
+         */
+        private void giveBack(PreparedStatement statement) {
+            String key = cachedStatements.remove(statement);
+            if (key != null)
+                pooled.statementCache.giveBack(key, statement);
+        }
+
+        private void closeStatements() {
+            for (ResultSet result : results) {
+                try {
+                    result.close();
+                } catch (SQLException ignored) {
+                    // the result set belongs to a connection that is given back anyway
+                }
+            }
+            results.clear();
+            for (Statement statement : statements) {
+                try {
+                    statement.close();
+                } catch (SQLException ignored) {
+                    // the statement belongs to a connection that is given back anyway
+                }
+            }
+            statements.clear();
+            for (Map.Entry<PreparedStatement, String> cached : cachedStatements.entrySet())
+                pooled.statementCache.giveBack(cached.getValue(), cached.getKey());
+            cachedStatements.clear();
+            cacheEvictions.addAndGet(pooled.statementCache.drainEvictions());
+        }
+    }
+
+    /**
+     * counts the statements executed through a borrowed connection and keeps track of their result sets,
+     * closing a cached statement puts it back into the statement cache instead of closing it
+     */
+    private class StatementHandle implements InvocationHandler {
+        private final Statement statement;
+        private final ConnectionHandle owner;
+        private final Connection connection;
+        private final boolean cached;
+        private boolean closed = false;
+
+        StatementHandle(Statement statement, ConnectionHandle owner, Connection connection, boolean cached) {
+            this.statement = statement;
+            this.owner = owner;
+            this.connection = connection;
+            this.cached = cached;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (cached) {
+                switch (method.getName()) {
+                    case "close":
+                        if (!closed) {
+                            closed = true;
+                            owner.giveBack((PreparedStatement) statement);
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed;
+                }
+                if (closed)
+                    throw new SQLException("Statement is closed!");
+            }
+            if (method.getName().startsWith("execute"))
+                executed.incrementAndGet();
+            else if (method.getName().equals("getConnection"))
+                return connection;
+            try {
+                Object result = method.invoke(statement, args);
+                if (result instanceof ResultSet)
+                    owner.results.add((ResultSet) result);
+                return result;
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                // a socket dropped in the middle of a query fails here and not on the connection,
+                // the connection must not go back into the pool
+                if (cause instanceof SQLException && isConnectionError((SQLException) cause))
+                    owner.pooled.broken = true;
+                throw cause;
+            }
+        }
+    }
+
+    private static boolean isConnectionError(SQLException e) {
+        return e instanceof SQLNonTransientConnectionException
+                || e instanceof SQLTransientConnectionException
+                || (e.getSQLState() != null && e.getSQLState().startsWith("08"));
+    }
+}
@@ -0,0 +1,170 @@
+package com.company.Database;
+
+import java.util.Arrays;
+
+/**
+ * the Enrolled tuples as compressed bitmaps: every student and course gets a dense ordinal the first time it is seen,
+ * a course keeps the ordinals of its students and a student the ordinals of his courses
+ * answers if a student is enrolled to a course and the size of a roster without loading the roster,
+ * ordinals of removed students and courses are not given again
+ */
+public class EnrollmentIndex {
+    private final LongObjectMap<Entry> students = new LongObjectMap<>();
+    private final LongObjectMap<Entry> courses = new LongObjectMap<>();
+    private long[] studentIds = new long[16];
+    private long[] courseIds = new long[16];
+    private int studentOrdinals;
+    private int courseOrdinals;
+
+    /**
+     * @return true if the student is enrolled to the course
+     */
+    public synchronized boolean isEnrolled(long studentId, long courseId) {
+        Entry student = students.get(studentId);
+        Entry course = courses.get(courseId);
+        return student != null && course != null && course.members.contains(student.ordinal);
+    }
+
+    /**
+     * @return number of students enrolled to the course
+     */
+    public synchronized int rosterSize(long courseId) {
+        Entry course = courses.get(courseId);
+        return course == null ? 0 : course.members.cardinality();
+    }
+
+    /**
+     * @return ids of the courses of the student in the order they were first seen
+     */
+    public synchronized long[] coursesOf(long studentId) {
+        Entry student = students.get(studentId);
+        return student == null ? new long[0] : ids(student.members, courseIds);
+    }
+
+    /**
+     * @return ids of the students of the course in the order they were first seen
+     */
+    public synchronized long[] studentsOf(long courseId) {
+        Entry course = courses.get(courseId);
+        return course == null ? new long[0] : ids(course.members, studentIds);
+    }
+
+    public synchronized void enroll(long studentId, long courseId) {
+        Entry student = this.student(studentId);
+        Entry course = this.course(courseId);
+        course.members.add(student.ordinal);
+        student.members.add(course.ordinal);
+    }
+
+    public synchronized void unenroll(long studentId, long courseId) {
+        Entry student = students.get(studentId);
+        Entry course = courses.get(courseId);
+        if (student != null && course != null) {
+            course.members.remove(student.ordinal);
+            student.members.remove(course.ordinal);
+        }
+    }
+
+    /**
+     * replaces the students of the course, a course seen before keeps its ordinal
+     */
+    public synchronized void setRoster(long courseId, long[] studentIds) {
+        Entry course = this.course(courseId);
+        this.clear(course);
+        for (long studentId : studentIds) {
+            Entry student = this.student(studentId);
+            course.members.add(student.ordinal);
+            student.members.add(course.ordinal);
+        }
+    }
+
+    /**
+     * removes the course and its Enrolled tuples
+     */
+    public synchronized void removeCourse(long courseId) {
+        Entry course = courses.remove(courseId);
+        if (course != null)
+            this.clear(course);
+    }
+
+    /**
+     * removes the student and his Enrolled tuples
+     */
+    public synchronized void removeStudent(long studentId) {
+        Entry student = students.remove(studentId);
+        if (student == null)
+            return;
+        for (int ordinal : student.members.toArray())
+            courses.get(courseIds[ordinal]).members.remove(student.ordinal);
+    }
+
+    public synchronized int getStudentCount() {
+        return students.size();
+    }
+
+    public synchronized int getCourseCount() {
+        return courses.size();
+    }
+
+    private Entry student(long id) {
+        Entry student = students.get(id);
+        if (student == null) {
+            if (studentOrdinals == studentIds.length)
+                studentIds = Arrays.copyOf(studentIds, studentOrdinals * 2);
+            studentIds[studentOrdinals] = id;
+            student = new Entry(studentOrdinals++);
+            students.put(id, student);
+        }
+        return student;
+    }
+
+    private Entry course(long id) {
+        Entry course = courses.get(id);
+        if (course == null) {
+            if (courseOrdinals == courseIds.length)
+                courseIds = Arrays.copyOf(courseIds, courseOrdinals * 2);
+            courseIds[courseOrdinals] = id;
+            course = new Entry(courseOrdinals++);
+            courses.put(id, course);
+        }
+        return course;
+    }
+
+    /**
+     * removes the Enrolled tuples of the course
+     */
+    private void clear(Entry course) {
+        for (int ordinal : course.members.toArray()) {
+            students.get(studentIds[ordinal]).members.remove(course.ordinal);
+            course.members.remove(ordinal);
+        }
+    }
+
+    private static long[] ids(CompressedBitmap ordinals, long[] idOf) {
+        int[] members = ordinals.toArray();
+        long[] ids = new long[members.length];
+        for (int i = 0; i < members.length; i++)
+            ids[i] = idOf[members[i]];
+        return ids;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "EnrollmentIndex{" +
+                "students=" + students.size() +
+                ", courses=" + courses.size() +
+                '}';
+    }
+
+    /**
+     * a student or a course, members are the ordinals of its courses or its students
+     */
+    private static final class Entry {
+        private final int ordinal;
+        private final CompressedBitmap members = new CompressedBitmap();
+
+        Entry(int ordinal) {
+            this.ordinal = ordinal;
+        }
+    }
+}
@@ -0,0 +1,573 @@
+package com.company.Database;
+
+import com.company.Exceptions.InputException;
+import com.company.Exceptions.NullException;
+import com.company.Model.Course;
+import com.company.Model.Student;
+import com.company.Model.Teacher;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * the Students, Teachers, Courses and Enrolled tables kept in memory, in maps keyed by primitive ids,
+ * the enrollments are kept as primitive id sets in both directions
+ * it gives copies of the rows without their associations, so the callers can not change the tables by accident;
+ * reads run under a shared lock, writes and units of work under an exclusive lock
+ * a unit of work keeps an undo log and rolls its writes back if it fails,
+ * with a journal the changes of every committed unit are also written to it before the unit returns
+ */
+public class InMemoryDatabase implements UnitOfWork {
+    private final LongObjectMap<Student> students = new LongObjectMap<>();
+    private final LongObjectMap<Teacher> teachers = new LongObjectMap<>();
+    private final LongObjectMap<CourseRow> courses = new LongObjectMap<>();
+    private final LongObjectMap<LongHashSet> coursesOfStudent = new LongObjectMap<>();
+    private final LongObjectMap<LongHashSet> studentsOfCourse = new LongObjectMap<>();
+    private final LongObjectMap<LongHashSet> coursesOfTeacher = new LongObjectMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Deque<Runnable>> undoLog = new ThreadLocal<>();
+    private final ThreadLocal<List<Runnable>> completions = ThreadLocal.withInitial(ArrayList::new);
+    private final ThreadLocal<ChangeLog> changes = new ThreadLocal<>();
+    private final Journal journal;
+
+    public InMemoryDatabase() {
+        this(null);
+    }
+
+    /**
+     * @param journal log the committed units are written to or null if the tables only live in memory
+     */
+    InMemoryDatabase(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * work which writes to the database
+     *
+     * @param <T> type of the result of the work
+     */
+    public interface Write<T> {
+        T apply() throws SQLException;
+    }
+
+    /**
+     * runs the work as one unit under the exclusive lock, if it fails all its writes are undone
+     *
+     * @param work the work to be done
+     * @return the result of the work
+     * @throws SQLException   if the work failed with an SQLException
+     * @throws NullException  if the work failed with a NullException
+     * @throws InputException if the work failed with an InputException
+     */
+    @Override
+    public <T> T execute(TransactionCallback<T> work) throws SQLException, NullException, InputException {
+        lock.writeLock().lock();
+        if (undoLog.get() != null) {
+            // joins the unit which is already running on this thread
+            try {
+                return work.execute();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        try {
+            T result;
+            long sequence = -1;
+            try {
+                undoLog.set(new ArrayDeque<>());
+                if (journal != null)
+                    changes.set(new ChangeLog());
+                result = work.execute();
+                if (journal != null && !changes.get().isEmpty())
+                    sequence = journal.append(changes.get().toByteArray());
+            } catch (SQLException | NullException | InputException | RuntimeException e) {
+                this.rollback();
+                throw e;
+            } finally {
+                undoLog.remove();
+                changes.remove();
+                lock.writeLock().unlock();
+            }
+            // waits outside of the lock, so the units committed meanwhile are written with the same sync
+            if (sequence >= 0)
+                journal.sync(sequence);
+            return result;
+        } finally {
+            this.runCompletions();
+        }
+    }
+
+    /**
+     * runs the writes of a single repository call as one unit
+     *
+     * @param work the writes
+     * @return the result of the work
+     * @throws SQLException if a constraint of the tables is violated
+     */
+    public <T> T write(Write<T> work) throws SQLException {
+        try {
+            return this.execute(work::apply);
+        } catch (NullException | InputException e) {
+            // a Write can not throw them
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * runs the reads under the shared lock, so they see the tables between two writes
+     *
+     * @param reader the reads
+     * @return the result of the reads
+     */
+    public <T> T read(Supplier<T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the shared lock, held while the tables are written to a snapshot
+     */
+    Lock sharedLock() {
+        return lock.readLock();
+    }
+
+    private void rollback() {
+        Deque<Runnable> undo = undoLog.get();
+        while (!undo.isEmpty())
+            undo.pop().run();
+    }
+
+    private void runCompletions() {
+        List<Runnable> actions = completions.get();
+        completions.remove();
+        for (Runnable action : actions)
+            action.run();
+    }
+
+    /**
+     * records how to undo a write, writes are only allowed inside a unit
+     */
+    private void undo(Runnable action) {
+        Deque<Runnable> undo = undoLog.get();
+        if (undo == null)
+            throw new IllegalStateException("Writes must run inside write() or execute()!");
+        undo.push(action);
+    }
+
+    /**
+     * @return the changes of the unit of the current thread or null if there is no journal
+     */
+    private ChangeLog changes() {
+        return changes.get();
+    }
+
+    @Override
+    public boolean inTransaction() {
+        return undoLog.get() != null;
+    }
+
+    @Override
+    public void afterCompletion(Runnable action) {
+        if (undoLog.get() == null)
+            action.run();
+        else
+            completions.get().add(action);
+    }
+
+    // ---------- reads, the callers hold at least the shared lock
+
+    /**
+     * @return copy of the student without his courses or null
+     */
+    public Student student(long id) {
+        Student row = students.get(id);
+        return row == null ? null : copy(row);
+    }
+
+    /**
+     * @return copy of the teacher without his courses or null
+     */
+    public Teacher teacher(long id) {
+        Teacher row = teachers.get(id);
+        return row == null ? null : copy(row);
+    }
+
+    /**
+     * @return copy of the course with a copy of its teacher but without its students, or null,
+     * a course without teacher gets an empty teacher like the left outer join of the JDBC repository
+     */
+    public Course course(long id) {
+        CourseRow row = courses.get(id);
+        if (row == null)
+            return null;
+        Teacher teacher = row.hasTeacher ? this.teacher(row.teacherId) : null;
+        return new Course(id, row.name, teacher == null ? new Teacher(0, null, null) : teacher,
+                row.maxEnrollment, row.credits);
+    }
+
+    public boolean containsStudent(long id) {
+        return students.containsKey(id);
+    }
+
+    public boolean containsTeacher(long id) {
+        return teachers.containsKey(id);
+    }
+
+    public boolean containsCourse(long id) {
+        return courses.containsKey(id);
+    }
+
+    public long[] studentIds() {
+        return students.sortedKeys();
+    }
+
+    public long[] teacherIds() {
+        return teachers.sortedKeys();
+    }
+
+    public long[] courseIds() {
+        return courses.sortedKeys();
+    }
+
+    public int studentCount() {
+        return students.size();
+    }
+
+    public int teacherCount() {
+        return teachers.size();
+    }
+
+    public int courseCount() {
+        return courses.size();
+    }
+
+    public long[] coursesOfStudent(long studentId) {
+        return sorted(coursesOfStudent.get(studentId));
+    }
+
+    public long[] studentsOfCourse(long courseId) {
+        return sorted(studentsOfCourse.get(courseId));
+    }
+
+    /**
+     * @return true if there is an Enrolled tuple of the student and the course
+     */
+    public boolean isEnrolled(long studentId, long courseId) {
+        LongHashSet courses = coursesOfStudent.get(studentId);
+        return courses != null && courses.contains(courseId);
+    }
+
+    /**
+     * @return number of students enrolled to the course, without copying them
+     */
+    public int enrolledCount(long courseId) {
+        LongHashSet students = studentsOfCourse.get(courseId);
+        return students == null ? 0 : students.size();
+    }
+
+    public long[] coursesOfTeacher(long teacherId) {
+        return sorted(coursesOfTeacher.get(teacherId));
+    }
+
+    private static long[] sorted(LongHashSet ids) {
+        return ids == null ? new long[0] : ids.toSortedArray();
+    }
+
+    // ---------- writes, the callers run inside write() or execute()
+
+    /**
+     * inserts the student or replaces the attributes of an existing one
+     */
+    public void putStudent(Student student) {
+        Student previous = students.put(student.getStudentId(), copy(student));
+        this.undo(() -> {
+            if (previous == null)
+                students.remove(student.getStudentId());
+            else
+                students.put(student.getStudentId(), previous);
+        });
+        if (this.changes() != null)
+            this.changes().putStudent(student);
+    }
+
+    /**
+     * removes the student and his Enrolled tuples
+     *
+     * @return true if the student existed
+     */
+    public boolean removeStudent(long id) {
+        if (!students.containsKey(id))
+            return false;
+        for (long courseId : this.coursesOfStudent(id))
+            this.removeEnrolled(id, courseId);
+        Student previous = students.remove(id);
+        this.undo(() -> students.put(id, previous));
+        if (this.changes() != null)
+            this.changes().removeStudent(id);
+        return true;
+    }
+
+    /**
+     * inserts the teacher or replaces the attributes of an existing one
+     */
+    public void putTeacher(Teacher teacher) {
+        Teacher previous = teachers.put(teacher.getTeacherId(), copy(teacher));
+        this.undo(() -> {
+            if (previous == null)
+                teachers.remove(teacher.getTeacherId());
+            else
+                teachers.put(teacher.getTeacherId(), previous);
+        });
+        if (this.changes() != null)
+            this.changes().putTeacher(teacher);
+    }
+
+    /**
+     * removes the teacher, his courses are left without teacher
+     *
+     * @return true if the teacher existed
+     */
+    public boolean removeTeacher(long id) {
+        if (!teachers.containsKey(id))
+            return false;
+        for (long courseId : this.coursesOfTeacher(id)) {
+            CourseRow row = courses.get(courseId);
+            this.putCourseRow(courseId, new CourseRow(row.name, 0, false, row.maxEnrollment, row.credits));
+        }
+        Teacher previous = teachers.remove(id);
+        this.undo(() -> teachers.put(id, previous));
+        if (this.changes() != null)
+            this.changes().removeTeacher(id);
+        return true;
+    }
+
+    /**
+     * inserts the course or replaces the attributes of an existing one
+     *
+     * @throws SQLException if the teacher of the course does not exist
+     */
+    public void putCourse(Course course) throws SQLException {
+        Teacher teacher = course.getTeacher();
+        if (teacher != null && !teachers.containsKey(teacher.getTeacherId()))
+            throw new SQLIntegrityConstraintViolationException("Teacher " + teacher.getTeacherId() + " does not exist!");
+        CourseRow row = new CourseRow(course.getName(), teacher == null ? 0 : teacher.getTeacherId(), teacher != null,
+                course.getMaxEnrollment(), course.getCredits());
+        this.putCourseRow(course.getCourseId(), row);
+        if (this.changes() != null)
+            this.changes().putCourse(course.getCourseId(), row.name, row.teacherId, row.hasTeacher,
+                    row.maxEnrollment, row.credits);
+    }
+
+    private void putCourseRow(long id, CourseRow row) {
+        CourseRow previous = courses.put(id, row);
+        if (previous != null && previous.hasTeacher)
+            setOf(coursesOfTeacher, previous.teacherId).remove(id);
+        if (row.hasTeacher)
+            setOf(coursesOfTeacher, row.teacherId).add(id);
+        this.undo(() -> {
+            if (row.hasTeacher)
+                setOf(coursesOfTeacher, row.teacherId).remove(id);
+            if (previous == null) {
+                courses.remove(id);
+            } else {
+                courses.put(id, previous);
+                if (previous.hasTeacher)
+                    setOf(coursesOfTeacher, previous.teacherId).add(id);
+            }
+        });
+    }
+
+    /**
+     * removes the course and its Enrolled tuples
+     *
+     * @return true if the course existed
+     */
+    public boolean removeCourse(long id) {
+        CourseRow row = courses.get(id);
+        if (row == null)
+            return false;
+        for (long studentId : this.studentsOfCourse(id))
+            this.removeEnrolled(studentId, id);
+        courses.remove(id);
+        if (row.hasTeacher)
+            setOf(coursesOfTeacher, row.teacherId).remove(id);
+        this.undo(() -> {
+            courses.put(id, row);
+            if (row.hasTeacher)
+                setOf(coursesOfTeacher, row.teacherId).add(id);
+        });
+        if (this.changes() != null)
+            this.changes().removeCourse(id);
+        return true;
+    }
+
+    /**
+     * inserts an Enrolled tuple
+     *
+     * @throws SQLException if the student or the course does not exist
+     */
+    public void enroll(long studentId, long courseId) throws SQLException {
+        if (!students.containsKey(studentId))
+            throw new SQLIntegrityConstraintViolationException("Student " + studentId + " does not exist!");
+        if (!courses.containsKey(courseId))
+            throw new SQLIntegrityConstraintViolationException("Course " + courseId + " does not exist!");
+        if (setOf(coursesOfStudent, studentId).add(courseId)) {
+            setOf(studentsOfCourse, courseId).add(studentId);
+            this.undo(() -> {
+                setOf(coursesOfStudent, studentId).remove(courseId);
+                setOf(studentsOfCourse, courseId).remove(studentId);
+            });
+            if (this.changes() != null)
+                this.changes().enroll(studentId, courseId);
+        }
+    }
+
+    /**
+     * removes an Enrolled tuple
+     */
+    public void unenroll(long studentId, long courseId) {
+        if (this.removeEnrolled(studentId, courseId) && this.changes() != null)
+            this.changes().unenroll(studentId, courseId);
+    }
+
+    /**
+     * removes an Enrolled tuple without recording it, for the removals which follow from removing a row
+     *
+     * @return true if the tuple existed
+     */
+    private boolean removeEnrolled(long studentId, long courseId) {
+        if (setOf(coursesOfStudent, studentId).remove(courseId)) {
+            setOf(studentsOfCourse, courseId).remove(studentId);
+            this.undo(() -> {
+                setOf(coursesOfStudent, studentId).add(courseId);
+                setOf(studentsOfCourse, courseId).add(studentId);
+            });
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * brings the Enrolled tuples of the student in line with the given courses, only the changed tuples are written
+     *
+     * @throws SQLException if one of the courses does not exist
+     */
+    public void syncCoursesOfStudent(long studentId, long[] courseIds) throws SQLException {
+        LongHashSet wanted = new LongHashSet();
+        for (long courseId : courseIds)
+            wanted.add(courseId);
+        for (long courseId : this.coursesOfStudent(studentId)) {
+            if (!wanted.contains(courseId))
+                this.unenroll(studentId, courseId);
+        }
+        for (long courseId : courseIds)
+            this.enroll(studentId, courseId);
+    }
+
+    /**
+     * brings the Enrolled tuples of the course in line with the given students, only the changed tuples are written
+     *
+     * @throws SQLException if one of the students does not exist
+     */
+    public void syncStudentsOfCourse(long courseId, long[] studentIds) throws SQLException {
+        LongHashSet wanted = new LongHashSet();
+        for (long studentId : studentIds)
+            wanted.add(studentId);
+        for (long studentId : this.studentsOfCourse(courseId)) {
+            if (!wanted.contains(studentId))
+                this.unenroll(studentId, courseId);
+        }
+        for (long studentId : studentIds)
+            this.enroll(studentId, courseId);
+    }
+
+    /**
+     * writes the tables as the changes which build them again, in chunks of at least chunkSize bytes,
+     * the caller holds the shared lock
+     *
+     * @param out receives the chunks in the order they must be applied
+     */
+    void dump(int chunkSize, ChunkWriter out) throws IOException {
+        ChangeLog chunk = new ChangeLog();
+        for (long id : teachers.sortedKeys()) {
+            chunk.putTeacher(teachers.get(id));
+            chunk = flushIfFull(chunk, chunkSize, out);
+        }
+        for (long id : courses.sortedKeys()) {
+            CourseRow row = courses.get(id);
+            chunk.putCourse(id, row.name, row.teacherId, row.hasTeacher, row.maxEnrollment, row.credits);
+            chunk = flushIfFull(chunk, chunkSize, out);
+        }
+        for (long id : students.sortedKeys()) {
+            chunk.putStudent(students.get(id));
+            for (long courseId : this.coursesOfStudent(id))
+                chunk.enroll(id, courseId);
+            chunk = flushIfFull(chunk, chunkSize, out);
+        }
+        if (!chunk.isEmpty())
+            out.write(chunk.toByteArray());
+    }
+
+    private static ChangeLog flushIfFull(ChangeLog chunk, int chunkSize, ChunkWriter out) throws IOException {
+        if (chunk.size() < chunkSize)
+            return chunk;
+        out.write(chunk.toByteArray());
+        return new ChangeLog();
+    }
+
+    /**
+     * receives the chunks of a dump
+     */
+    interface ChunkWriter {
+        void write(byte[] records) throws IOException;
+    }
+
+    private static LongHashSet setOf(LongObjectMap<LongHashSet> sets, long id) {
+        LongHashSet set = sets.get(id);
+        if (set == null) {
+            set = new LongHashSet();
+            sets.put(id, set);
+        }
+        return set;
+    }
+
+    private static Student copy(Student student) {
+        return new Student(student.getStudentId(), student.getFirstName(), student.getLastName(), student.getTotalCredits());
+    }
+
+    private static Teacher copy(Teacher teacher) {
+        return new Teacher(teacher.getTeacherId(), teacher.getFirstName(), teacher.getLastName());
+    }
+
+    /**
+     * a tuple of the Courses table, teacherId only counts if hasTeacher is true
+     */
+    private static final class CourseRow {
+        private final String name;
+        private final long teacherId;
+        private final boolean hasTeacher;
+        private final int maxEnrollment;
+        private final int credits;
+
+        CourseRow(String name, long teacherId, boolean hasTeacher, int maxEnrollment, int credits) {
+            this.name = name;
+            this.teacherId = teacherId;
+            this.hasTeacher = hasTeacher;
+            this.maxEnrollment = maxEnrollment;
+            this.credits = credits;
+        }
+    }
+}
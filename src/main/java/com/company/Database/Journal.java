@@ -0,0 +1,26 @@
+package com.company.Database;
+
+import java.sql.SQLException;
+
+/**
+ * durable log of the units of work of an InMemoryDatabase
+ */
+interface Journal {
+    /**
+     * queues the changes of a committed unit, called under the exclusive lock of the database,
+     * so the changes are queued in the order they were applied
+     *
+     * @param changes the records of a ChangeLog
+     * @return sequence number to wait for with sync, or a negative number if there is nothing to wait for
+     * @throws SQLException if the log can not be written any more
+     */
+    long append(byte[] changes) throws SQLException;
+
+    /**
+     * waits until the changes with the given sequence number and all before them are on disk,
+     * called outside of the lock, so the changes of concurrent units are written together
+     *
+     * @throws SQLException if the changes could not be written
+     */
+    void sync(long sequence) throws SQLException;
+}
@@ -0,0 +1,113 @@
+package com.company.Database;
+
+import java.util.Arrays;
+
+/**
+ * hash set of primitive long values with open addressing and linear probing, the values are never boxed
+ */
+final class LongHashSet {
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] elements = new long[MIN_CAPACITY];
+    private boolean[] used = new boolean[MIN_CAPACITY];
+    private int mask = MIN_CAPACITY - 1;
+    private int size;
+
+    /**
+     * @return home slot of the value in a table with mask + 1 slots
+     */
+    static int slot(long value, int mask) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    boolean contains(long value) {
+        for (int i = slot(value, mask); used[i]; i = (i + 1) & mask) {
+            if (elements[i] == value)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the value was not in the set
+     */
+    boolean add(long value) {
+        int i = slot(value, mask);
+        for (; used[i]; i = (i + 1) & mask) {
+            if (elements[i] == value)
+                return false;
+        }
+        elements[i] = value;
+        used[i] = true;
+        if (++size > (mask + 1) / 4 * 3)
+            this.resize((mask + 1) * 2);
+        return true;
+    }
+
+    /**
+     * @return true if the value was in the set
+     */
+    boolean remove(long value) {
+        for (int i = slot(value, mask); used[i]; i = (i + 1) & mask) {
+            if (elements[i] == value) {
+                this.shiftBack(i);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void shiftBack(int gap) {
+        for (int i = (gap + 1) & mask; used[i]; i = (i + 1) & mask) {
+            int home = slot(elements[i], mask);
+            boolean movable = gap <= i ? (home <= gap || home > i) : (home <= gap && home > i);
+            if (movable) {
+                elements[gap] = elements[i];
+                gap = i;
+            }
+        }
+        used[gap] = false;
+        elements[gap] = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldElements = elements;
+        boolean[] oldUsed = used;
+        elements = new long[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        for (int j = 0; j < oldElements.length; j++) {
+            if (!oldUsed[j])
+                continue;
+            int i = slot(oldElements[j], mask);
+            while (used[i])
+                i = (i + 1) & mask;
+            elements[i] = oldElements[j];
+            used[i] = true;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the values in ascending order
+     */
+    long[] toSortedArray() {
+        long[] result = new long[size];
+        int n = 0;
+        for (int i = 0; i < elements.length; i++) {
+            if (used[i])
+                result[n++] = elements[i];
+        }
+        Arrays.sort(result);
+        return result;
+    }
+}
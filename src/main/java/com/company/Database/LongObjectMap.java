@@ -0,0 +1,124 @@
+package com.company.Database;
+
+import java.util.Arrays;
+
+/**
+ * hash map from primitive long keys to objects with open addressing and linear probing,
+ * the keys are never boxed; null values are not allowed, an empty slot has a null value
+ *
+ * @param <V> type of the values
+ */
+final class LongObjectMap<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys = new long[MIN_CAPACITY];
+    private Object[] values = new Object[MIN_CAPACITY];
+    private int mask = MIN_CAPACITY - 1;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        for (int i = LongHashSet.slot(key, mask); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return (V) values[i];
+        }
+        return null;
+    }
+
+    boolean containsKey(long key) {
+        return this.get(key) != null;
+    }
+
+    /**
+     * @return the previous value of the key or null
+     */
+    @SuppressWarnings("unchecked")
+    V put(long key, V value) {
+        if (value == null)
+            throw new IllegalArgumentException("Null value!");
+        int i = LongHashSet.slot(key, mask);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        // at most 3/4 of the slots are used, so the probe sequences stay short
+        if (++size > (mask + 1) / 4 * 3)
+            this.resize((mask + 1) * 2);
+        return null;
+    }
+
+    /**
+     * @return the removed value or null
+     */
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+        for (int i = LongHashSet.slot(key, mask); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                this.shiftBack(i);
+                size--;
+                return previous;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * closes the gap left by a removed entry by moving back the following entries of the probe sequence,
+     * so no tombstones are needed
+     */
+    private void shiftBack(int gap) {
+        for (int i = (gap + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+            int home = LongHashSet.slot(keys[i], mask);
+            // the entry may move to the gap if its home slot is not cyclically between the gap and itself
+            boolean movable = gap <= i ? (home <= gap || home > i) : (home <= gap && home > i);
+            if (movable) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = null;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] == null)
+                continue;
+            int i = LongHashSet.slot(oldKeys[j], mask);
+            while (values[i] != null)
+                i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the keys in ascending order
+     */
+    long[] sortedKeys() {
+        long[] result = new long[size];
+        int n = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null)
+                result[n++] = keys[i];
+        }
+        Arrays.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,81 @@
+package com.company.Database;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of the prepared statements of one physical connection
+ * a statement is taken out of the cache while it is used, so it can not be handed out twice at the same time
+ */
+class StatementCache {
+    private final int maxSize;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+    private int evictions = 0;
+
+    StatementCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > StatementCache.this.maxSize) {
+                    evictions++;
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param key sql text together with the result set type and concurrency
+     * @return the cached statement or null if there is none
+     */
+    PreparedStatement take(String key) {
+        return statements.remove(key);
+    }
+
+    /**
+     * puts a statement back after it was used, evicting the least recently used statement if the cache is full
+     */
+    void giveBack(String key, PreparedStatement statement) {
+        try {
+            if (maxSize == 0 || statements.containsKey(key) || statement.isClosed()) {
+                closeQuietly(statement);
+                return;
+            }
+            // a batch which was not executed must not be sent by the next borrower
+            statement.clearBatch();
+            statement.clearParameters();
+        } catch (SQLException e) {
+            closeQuietly(statement);
+            return;
+        }
+        statements.put(key, statement);
+    }
+
+    /**
+     * @return number of statements evicted since the last call
+     */
+    int drainEvictions() {
+        int count = evictions;
+        evictions = 0;
+        return count;
+    }
+
+    void clear() {
+        for (PreparedStatement statement : statements.values())
+            closeQuietly(statement);
+        statements.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // a statement which can not be closed is dropped anyway
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.company.Database;
+
+import com.company.Exceptions.InputException;
+import com.company.Exceptions.NullException;
+
+import java.sql.SQLException;
+
+/**
+ * work which runs inside a single transaction
+ *
+ * @param <T> type of the result of the work
+ */
+public interface TransactionCallback<T> {
+    T execute() throws SQLException, NullException, InputException;
+}
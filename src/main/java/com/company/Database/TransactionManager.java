@@ -0,0 +1,259 @@
+package com.company.Database;
+
+import com.company.Exceptions.InputException;
+import com.company.Exceptions.NullException;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * JDBC transactions spanning all the repositories
+ * the repositories get their connections from this DataSource: inside execute() every repository call of the
+ * thread runs on the same connection of the transaction, outside of it the connections come from the pool
+ */
+public class TransactionManager implements DataSource, UnitOfWork {
+    // MySQL error codes of a deadlock and of a lock wait timeout
+    private static final int ER_LOCK_DEADLOCK = 1213;
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+
+    private final DataSource dataSource;
+    private final int maxRetries;
+    private final ThreadLocal<Connection> transaction = new ThreadLocal<>();
+    private final ThreadLocal<List<Runnable>> completions = ThreadLocal.withInitial(ArrayList::new);
+
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong rollbacks = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+
+    public TransactionManager(DataSource dataSource) {
+        this(dataSource, 3);
+    }
+
+    /**
+     * @param dataSource where the connections come from
+     * @param maxRetries how many times a transaction which was chosen as a deadlock victim is run again
+     */
+    public TransactionManager(DataSource dataSource, int maxRetries) {
+        this.dataSource = dataSource;
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * runs the work in one transaction which is committed once at the end and rolled back if the work fails,
+     * a transaction rolled back by the database because of a deadlock is run again
+     *
+     * @param work the work to be done, it may run more than once so it has to load the data it changes itself
+     * @return the result of the work
+     * @throws SQLException   if connection to database could not succeed
+     * @throws NullException  if the work failed with a NullException
+     * @throws InputException if the work failed with an InputException
+     */
+    @Override
+    public <T> T execute(TransactionCallback<T> work) throws SQLException, NullException, InputException {
+        // joins the transaction which is already running on this thread
+        if (transaction.get() != null)
+            return work.execute();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return this.runOnce(work);
+            } catch (SQLException e) {
+                if (attempt >= maxRetries || !isDeadlock(e))
+                    throw e;
+                retries.incrementAndGet();
+                this.backOff(attempt);
+            }
+        }
+    }
+
+    private <T> T runOnce(TransactionCallback<T> work) throws SQLException, NullException, InputException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            transaction.set(connection);
+            Exception failure = null;
+            try {
+                T result = work.execute();
+                connection.commit();
+                commits.incrementAndGet();
+                return result;
+            } catch (SQLException | NullException | InputException | RuntimeException e) {
+                this.rollback(connection, e);
+                failure = e;
+                throw e;
+            } finally {
+                // autocommit is not switched back here, on a broken connection that would throw and hide the
+                // failure of the work; the pool restores it when the connection comes back, otherwise it is closed
+                transaction.remove();
+                this.runCompletions(failure);
+            }
+        }
+    }
+
+    /**
+     * runs every completion action, also when one of them fails; a failure is added to the failure of the work,
+     * so it does not hide it, or thrown after all actions have run if the work succeeded
+     */
+    private void runCompletions(Exception cause) {
+        List<Runnable> actions = completions.get();
+        completions.remove();
+        RuntimeException failure = null;
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                if (cause != null)
+                    cause.addSuppressed(e);
+                else if (failure == null)
+                    failure = e;
+                else
+                    failure.addSuppressed(e);
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    private void rollback(Connection connection, Exception cause) {
+        try {
+            connection.rollback();
+            rollbacks.incrementAndGet();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * waits a random time growing with the attempt, so the transactions of a deadlock do not meet again
+     */
+    private void backOff(int attempt) throws SQLException {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(5, 20) * (attempt + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while retrying a transaction!", e);
+        }
+    }
+
+    private static boolean isDeadlock(SQLException e) {
+        return e instanceof SQLTransactionRollbackException
+                || "40001".equals(e.getSQLState())
+                || e.getErrorCode() == ER_LOCK_DEADLOCK
+                || e.getErrorCode() == ER_LOCK_WAIT_TIMEOUT;
+    }
+
+    /**
+     * @return true if the current thread runs inside a transaction
+     */
+    @Override
+    public boolean inTransaction() {
+        return transaction.get() != null;
+    }
+
+    /**
+     * runs the action after the transaction of the current thread is committed or rolled back,
+     * or at once outside of a transaction
+     *
+     * @param action the action to be run
+     */
+    @Override
+    public void afterCompletion(Runnable action) {
+        if (transaction.get() == null)
+            action.run();
+        else
+            completions.get().add(action);
+    }
+
+    /**
+     * gives the connection of the running transaction or, outside of a transaction, a connection from the pool
+     * closing the connection of a transaction does nothing, the transaction closes it when it ends
+     *
+     * @return a connection
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = transaction.get();
+        if (connection == null)
+            return dataSource.getConnection();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            return null;
+                        case "commit":
+                        case "rollback":
+                        case "setAutoCommit":
+                            throw new SQLException("The transaction is controlled by the TransactionManager!");
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("The connections come from the underlying DataSource!");
+    }
+
+    public long getCommitCount() {
+        return commits.get();
+    }
+
+    public long getRollbackCount() {
+        return rollbacks.get();
+    }
+
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return dataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this))
+            return iface.cast(this);
+        return dataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || dataSource.isWrapperFor(iface);
+    }
+}
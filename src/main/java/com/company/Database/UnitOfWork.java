@@ -0,0 +1,35 @@
+package com.company.Database;
+
+import com.company.Exceptions.InputException;
+import com.company.Exceptions.NullException;
+
+import java.sql.SQLException;
+
+/**
+ * runs work of several repositories as one unit, which either succeeds completely or has no effect
+ */
+public interface UnitOfWork {
+    /**
+     * runs the work as one unit, work started inside another unit joins the outer one
+     *
+     * @param work the work to be done
+     * @return the result of the work
+     * @throws SQLException   if connection to database could not succeed, the unit is rolled back
+     * @throws NullException  if the work failed with a NullException, the unit is rolled back
+     * @throws InputException if the work failed with an InputException, the unit is rolled back
+     */
+    <T> T execute(TransactionCallback<T> work) throws SQLException, NullException, InputException;
+
+    /**
+     * @return true if the current thread runs inside a unit
+     */
+    boolean inTransaction();
+
+    /**
+     * runs the action when the unit of the current thread ends, committed or rolled back,
+     * or at once if the thread does not run inside a unit
+     *
+     * @param action the action to be run
+     */
+    void afterCompletion(Runnable action);
+}
@@ -0,0 +1,426 @@
+package com.company.Database;
+
+import com.company.Exceptions.InputException;
+import com.company.Exceptions.NullException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.CRC32;
+
+/**
+ * keeps the tables of an InMemoryDatabase in a directory: a snapshot of the tables and a log of the units
+ * committed after it, the log is replayed when the directory is opened
+ * every committed unit is appended to the log as one frame (length, CRC32, records) and the unit returns
+ * once the frame is on disk; units committed while a sync is running are written with the next sync,
+ * so concurrent registrations share the syncs (group commit)
+ * when the log grows over the snapshot threshold the tables are written to a new snapshot and a new log is started
+ */
+public class WriteAheadLog implements Journal, Closeable {
+    public static final long DEFAULT_SNAPSHOT_THRESHOLD = 16L * 1024 * 1024;
+
+    private static final String SNAPSHOT = "snapshot";
+    private static final String SNAPSHOT_TMP = "snapshot.tmp";
+    private static final String LOG_PREFIX = "log-";
+    private static final int SNAPSHOT_MAGIC = 0x52454753;
+    private static final int FRAME_HEADER = 8;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final long snapshotThreshold;
+    private final InMemoryDatabase database;
+
+    // guarded by this
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appendedSequence = 0;
+    private FileChannel log;
+    private long generation;
+    private volatile long logSize;
+    private boolean recovering = true;
+
+    // guarded by syncMonitor
+    private final Object syncMonitor = new Object();
+    private long syncedSequence = 0;
+    private boolean syncing = false;
+    // once a sync failed the log is not written any more, the changes after it may be lost
+    private volatile IOException failure;
+
+    private final AtomicBoolean snapshotting = new AtomicBoolean();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong snapshots = new AtomicLong();
+    private final AtomicLong snapshotFailures = new AtomicLong();
+
+    public WriteAheadLog(Path directory) throws IOException {
+        this(directory, DEFAULT_SNAPSHOT_THRESHOLD);
+    }
+
+    /**
+     * opens the directory, creating it if needed, and rebuilds the tables from the snapshot and the log
+     *
+     * @param directory         directory of the snapshot and the log
+     * @param snapshotThreshold size of the log in bytes after which a new snapshot is written
+     * @throws IOException if the directory can not be read or the snapshot is damaged
+     */
+    public WriteAheadLog(Path directory, long snapshotThreshold) throws IOException {
+        this.directory = directory;
+        this.snapshotThreshold = snapshotThreshold;
+        this.database = new InMemoryDatabase(this);
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(SNAPSHOT_TMP));
+        this.generation = this.readSnapshot();
+        this.log = FileChannel.open(this.logPath(generation), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.logSize = this.replayLog();
+        this.deleteOldLogs();
+        synchronized (this) {
+            recovering = false;
+        }
+    }
+
+    /**
+     * @return the tables, the repositories and the controller use it as their database and unit of work
+     */
+    public InMemoryDatabase getDatabase() {
+        return database;
+    }
+
+    @Override
+    public synchronized long append(byte[] changes) throws SQLException {
+        // the units applied while the log is replayed are in it already
+        if (recovering)
+            return -1;
+        if (failure != null)
+            throw new SQLException("The log could not be written!", failure);
+        byte[] frame = frame(changes);
+        pending.write(frame, 0, frame.length);
+        commits.incrementAndGet();
+        return ++appendedSequence;
+    }
+
+    @Override
+    public void sync(long sequence) throws SQLException {
+        this.flush(sequence);
+        if (logSize >= snapshotThreshold && snapshotting.compareAndSet(false, true)) {
+            try {
+                this.snapshot();
+            } catch (IOException e) {
+                // the unit is on disk already, the log is compacted by a later unit
+                snapshotFailures.incrementAndGet();
+            } finally {
+                snapshotting.set(false);
+            }
+        }
+    }
+
+    /**
+     * waits until the frame with the given sequence number is on disk, the first waiting thread writes and syncs
+     * all frames appended so far while the others wait for it
+     */
+    private void flush(long sequence) throws SQLException {
+        synchronized (syncMonitor) {
+            while (true) {
+                if (failure != null)
+                    throw new SQLException("The log could not be written!", failure);
+                if (syncedSequence >= sequence)
+                    return;
+                if (!syncing)
+                    break;
+                try {
+                    syncMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for the log!", e);
+                }
+            }
+            syncing = true;
+        }
+        long upTo = 0;
+        IOException error = null;
+        try {
+            byte[] batch;
+            FileChannel channel;
+            synchronized (this) {
+                batch = pending.toByteArray();
+                pending.reset();
+                upTo = appendedSequence;
+                channel = log;
+                logSize += batch.length;
+            }
+            writeFully(channel, ByteBuffer.wrap(batch));
+            channel.force(false);
+            syncs.incrementAndGet();
+        } catch (IOException e) {
+            error = e;
+        }
+        synchronized (syncMonitor) {
+            syncing = false;
+            if (error == null)
+                syncedSequence = upTo;
+            else
+                failure = error;
+            syncMonitor.notifyAll();
+        }
+        if (error != null)
+            throw new SQLException("The log could not be written!", error);
+    }
+
+    /**
+     * writes the tables to a new snapshot and starts a new empty log, writes wait until it is done
+     *
+     * @throws IOException if the snapshot could not be written, the current snapshot and log stay in use
+     */
+    public void snapshot() throws IOException {
+        Lock shared = database.sharedLock();
+        shared.lock();
+        try {
+            long sequence;
+            synchronized (this) {
+                sequence = appendedSequence;
+            }
+            try {
+                this.flush(sequence);
+            } catch (SQLException e) {
+                throw new IOException("The log could not be written!", e);
+            }
+            long next = generation + 1;
+            Path tmp = directory.resolve(SNAPSHOT_TMP);
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = ByteBuffer.allocate(12);
+                header.putInt(SNAPSHOT_MAGIC).putLong(next).flip();
+                writeFully(out, header);
+                database.dump(CHUNK_SIZE, records -> writeFully(out, ByteBuffer.wrap(frame(records))));
+                out.force(true);
+            }
+            FileChannel nextLog = FileChannel.open(this.logPath(next), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                Files.move(tmp, directory.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                nextLog.close();
+                Files.deleteIfExists(this.logPath(next));
+                throw e;
+            }
+            FileChannel previous;
+            synchronized (this) {
+                previous = log;
+                log = nextLog;
+                generation = next;
+                logSize = 0;
+            }
+            previous.close();
+            this.syncDirectory();
+            Files.deleteIfExists(this.logPath(next - 1));
+            snapshots.incrementAndGet();
+        } finally {
+            shared.unlock();
+        }
+    }
+
+    /**
+     * applies the snapshot to the tables
+     *
+     * @return generation of the log which follows the snapshot, 0 if there is no snapshot
+     */
+    private long readSnapshot() throws IOException {
+        Path path = directory.resolve(SNAPSHOT);
+        if (!Files.exists(path))
+            return 0;
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(12);
+            if (readFully(in, header, 0) < 12 || header.getInt(0) != SNAPSHOT_MAGIC)
+                throw new IOException("Damaged snapshot " + path + "!");
+            long position = 12;
+            long size = in.size();
+            while (position < size) {
+                byte[] records = readFrame(in, position, size);
+                // the snapshot was written completely before it replaced the previous one
+                if (records == null)
+                    throw new IOException("Damaged snapshot " + path + " at " + position + "!");
+                this.apply(records);
+                position += FRAME_HEADER + records.length;
+            }
+            return header.getLong(4);
+        }
+    }
+
+    /**
+     * applies the complete frames of the log to the tables and cuts off a frame which was not
+     * written completely before a crash
+     *
+     * @return size of the log
+     */
+    private long replayLog() throws IOException {
+        long position = 0;
+        long size = log.size();
+        while (position < size) {
+            byte[] records = readFrame(log, position, size);
+            if (records == null)
+                break;
+            this.apply(records);
+            position += FRAME_HEADER + records.length;
+        }
+        if (position < size) {
+            log.truncate(position);
+            log.force(false);
+        }
+        log.position(position);
+        return position;
+    }
+
+    private void apply(byte[] records) throws IOException {
+        try {
+            database.execute(() -> {
+                try {
+                    ChangeLog.apply(records, database);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (SQLException | NullException | InputException e) {
+            throw new IOException("The log does not fit the tables!", e);
+        }
+    }
+
+    private void deleteOldLogs() throws IOException {
+        String current = this.logPath(generation).getFileName().toString();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, LOG_PREFIX + "*")) {
+            for (Path file : files) {
+                if (!file.getFileName().toString().equals(current))
+                    Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * makes the rename of the snapshot durable, not every file system allows to sync a directory
+     */
+    private void syncDirectory() {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private Path logPath(long generation) {
+        return directory.resolve(LOG_PREFIX + generation);
+    }
+
+    private static byte[] frame(byte[] records) {
+        CRC32 crc = new CRC32();
+        crc.update(records, 0, records.length);
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + records.length);
+        frame.putInt(records.length).putInt((int) crc.getValue()).put(records);
+        return frame.array();
+    }
+
+    /**
+     * @return the records of the frame at the position or null if the frame is incomplete or damaged
+     */
+    private static byte[] readFrame(FileChannel in, long position, long size) throws IOException {
+        if (size - position < FRAME_HEADER)
+            return null;
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+        readFully(in, header, position);
+        int length = header.getInt(0);
+        if (length < 0 || length > size - position - FRAME_HEADER)
+            return null;
+        ByteBuffer records = ByteBuffer.allocate(length);
+        readFully(in, records, position + FRAME_HEADER);
+        CRC32 crc = new CRC32();
+        crc.update(records.array(), 0, length);
+        if ((int) crc.getValue() != header.getInt(4))
+            return null;
+        return records.array();
+    }
+
+    private static int readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = in.read(buffer, position + total);
+            if (read < 0)
+                break;
+            total += read;
+        }
+        return total;
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            out.write(buffer);
+    }
+
+    /**
+     * writes the frames which are not on disk yet and closes the log
+     */
+    @Override
+    public void close() throws IOException {
+        long sequence;
+        synchronized (this) {
+            sequence = appendedSequence;
+        }
+        try {
+            this.flush(sequence);
+        } catch (SQLException e) {
+            throw new IOException("The log could not be written!", e);
+        } finally {
+            synchronized (this) {
+                log.close();
+            }
+        }
+    }
+
+    /**
+     * @return number of units written to the log
+     */
+    public long getCommitCount() {
+        return commits.get();
+    }
+
+    /**
+     * @return number of syncs of the log, fewer than the commits when units were committed together
+     */
+    public long getSyncCount() {
+        return syncs.get();
+    }
+
+    public long getSnapshotCount() {
+        return snapshots.get();
+    }
+
+    public long getSnapshotFailureCount() {
+        return snapshotFailures.get();
+    }
+
+    public synchronized long getLogSize() {
+        return logSize + pending.size();
+    }
+
+    @Override
+    public String toString() {
+        return "WriteAheadLog{" +
+                "directory=" + directory +
+                ", commits=" + commits +
+                ", syncs=" + syncs +
+                ", snapshots=" + snapshots +
+                ", logSize=" + this.getLogSize() +
+                '}';
+    }
+}
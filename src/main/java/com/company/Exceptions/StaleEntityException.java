@@ -0,0 +1,14 @@
+package com.company.Exceptions;
+
+import java.sql.SQLException;
+
+/**
+ * StaleEntityException class extends SQLException
+ * thrown by an update of an entity whose row was changed by another writer since the entity was read,
+ * the work can be run again on a fresh read of the entity
+ */
+public class StaleEntityException extends SQLException {
+    public StaleEntityException(String s) {
+        super(s);
+    }
+}
@@ -0,0 +1,18 @@
+package com.company.Exceptions;
+
+import java.sql.SQLException;
+
+/**
+ * UncheckedSQLException class extends RuntimeException
+ * carries an SQLException out of code which can not throw it, like a Stream of entities read from the database
+ */
+public class UncheckedSQLException extends RuntimeException {
+    public UncheckedSQLException(SQLException cause) {
+        super(cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
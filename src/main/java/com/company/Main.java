@@ -1,19 +1,118 @@
 package com.company;
 
 import com.company.Controller.RegistrationSystem;
+import com.company.Database.ConnectionPool;
+import com.company.Database.InMemoryDatabase;
+import com.company.Database.TransactionManager;
+import com.company.Database.WriteAheadLog;
 import com.company.Repository.*;
 import com.company.View.ConsoleView;
-import java.sql.SQLException;
+import com.company.View.HttpView;
+
+import java.io.IOException;
+import java.nio.file.Paths;
 
 
 public class Main {
-    public static void main(String[] args) throws SQLException {
-        StudentRepository studRepo = new StudentRepository();
-        TeacherRepository teacherRepo = new TeacherRepository();
-        CourseRepository courseRepo = new CourseRepository();
-
-        RegistrationSystem controller = new RegistrationSystem(studRepo, teacherRepo, courseRepo);
-        ConsoleView view = new ConsoleView(controller);
-        view.menu();
+    // server side prepared statements (cached by the connection pool), multi-row inserts for batches
+    // and server side cursors, so a positive fetch size really fetches the rows in portions
+    private static final String DB_URL = "jdbc:mysql://localhost/maplab5?useServerPrepStmts=true&rewriteBatchedStatements=true" +
+            "&useCursorFetch=true";
+    private static final String DB_USER = "victor";
+    private static final String DB_PASSWORD = "victorgugugaga";
+    private static final int POOL_SIZE = 10;
+    private static final int BATCH_SIZE = 100;
+    private static final int FETCH_SIZE = 500;
+    private static final int CACHE_SIZE = 1000;
+    private static final long CACHE_TTL_MILLIS = 60_000;
+    // "jdbc" for the MySQL database, "memory" for the in-memory database, which starts empty,
+    // or "file" for the in-memory database kept in a snapshot and a write-ahead log
+    private static final String ENGINE_PROPERTY = "registration.engine";
+    private static final String DIRECTORY_PROPERTY = "registration.directory";
+    // "console" for the menu on the terminal or "http" for the JSON API
+    private static final String VIEW_PROPERTY = "registration.view";
+    private static final String HTTP_PORT_PROPERTY = "registration.http.port";
+    private static final String HTTP_WORKERS_PROPERTY = "registration.http.workers";
+    private static final String HTTP_KEEP_ALIVE_PROPERTY = "registration.http.keepAliveSeconds";
+
+    public static void main(String[] args) {
+        String engine = args.length > 0 ? args[0] : System.getProperty(ENGINE_PROPERTY, "jdbc");
+        switch (engine) {
+            case "jdbc":
+                runJdbc();
+                break;
+            case "memory":
+                runInMemory(new InMemoryDatabase());
+                break;
+            case "file":
+                runFile(System.getProperty(DIRECTORY_PROPERTY, "registration-data"));
+                break;
+            default:
+                System.out.println("Unknown engine " + engine + ", use jdbc, memory or file");
+        }
+    }
+
+    private static void runJdbc() {
+        try (ConnectionPool pool = new ConnectionPool(DB_URL, DB_USER, DB_PASSWORD, POOL_SIZE)) {
+            // the repositories take their connections through the transaction manager to join its transactions
+            TransactionManager transactions = new TransactionManager(pool);
+            StudentRepository studRepo = new StudentRepository(transactions);
+            TeacherRepository teacherRepo = new TeacherRepository(transactions);
+            CourseRepository courseRepo = new CourseRepository(transactions);
+            studRepo.setBatchSize(BATCH_SIZE);
+            courseRepo.setBatchSize(BATCH_SIZE);
+            studRepo.setFetchSize(FETCH_SIZE);
+
+            // findOne is served from a cache outside of transactions, inside them it reads the database
+            IStudentRepository cachedStudents = new CachingStudentRepository(studRepo, CACHE_SIZE, CACHE_TTL_MILLIS,
+                    transactions);
+            CachingTeacherRepository cachedTeachers = new CachingTeacherRepository(teacherRepo, CACHE_SIZE,
+                    CACHE_TTL_MILLIS, transactions);
+            // a course write also evicts the teacher of the course
+            ICourseRepository cachedCourses = new CachingCourseRepository(courseRepo, CACHE_SIZE, CACHE_TTL_MILLIS,
+                    transactions, cachedTeachers);
+
+            RegistrationSystem controller = new RegistrationSystem(cachedStudents, cachedTeachers, cachedCourses, transactions);
+            // no more calls use the database at once than the pool has connections
+            show(controller, POOL_SIZE);
+        }
+    }
+
+    private static void runFile(String directory) {
+        try (WriteAheadLog log = new WriteAheadLog(Paths.get(directory))) {
+            runInMemory(log.getDatabase());
+        } catch (IOException e) {
+            System.out.println("The database in " + directory + " could not be opened: " + e.getMessage());
+        }
+    }
+
+    private static void runInMemory(InMemoryDatabase database) {
+        // the entities are in memory already, so they are not cached a second time
+        RegistrationSystem controller = new RegistrationSystem(new StudentMemoryRepository(database),
+                new TeacherMemoryRepository(database), new CourseMemoryRepository(database), database);
+        // the calls only wait for the lock of the database, so they are bounded like the worker threads
+        show(controller, Integer.getInteger(HTTP_WORKERS_PROPERTY, Runtime.getRuntime().availableProcessors() * 2));
+    }
+
+    private static void show(RegistrationSystem controller, int maxConcurrent) {
+        String view = System.getProperty(VIEW_PROPERTY, "console");
+        switch (view) {
+            case "console":
+                new ConsoleView(controller).menu();
+                break;
+            case "http":
+                try {
+                    new HttpView(controller,
+                            Integer.getInteger(HTTP_PORT_PROPERTY, 8080),
+                            Integer.getInteger(HTTP_WORKERS_PROPERTY, Runtime.getRuntime().availableProcessors() * 2),
+                            maxConcurrent,
+                            Integer.getInteger(HTTP_KEEP_ALIVE_PROPERTY, 30)).serve();
+                } catch (IOException e) {
+                    System.out.println("The HTTP server could not be started: " + e.getMessage());
+                }
+                break;
+            default:
+                System.out.println("Unknown view " + view + ", use console or http");
+        }
     }
 }
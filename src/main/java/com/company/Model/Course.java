@@ -10,6 +10,7 @@ public class Course {
     private int maxEnrollment;
     private transient List<Student> studentsEnrolled;
     private int credits;
+    private int version;
 
     public Course(long courseId, String name, Teacher teacher, int maxEnrollment, int credits) {
         this.courseId = courseId;
@@ -69,6 +70,16 @@ public class Course {
         this.courseId = courseId;
     }
 
+    /**
+     * @return version of the row the course was read from, a write succeeds only while the row still has it
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
 
     /**
      * comparation based on id
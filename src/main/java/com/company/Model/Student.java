@@ -7,6 +7,7 @@ public class Student extends Person {
     private long studentId;
     private transient int totalCredits;
     private transient List<Course> enrolledCourses;
+    private int version;
 
     public Student(long studentId, String firstName, String lastName, int totalCredits) {
         this.studentId = studentId;
@@ -50,6 +51,17 @@ public class Student extends Person {
         this.enrolledCourses = enrolledCourses;
     }
 
+    /**
+     * @return version of the row the student was read from, a write succeeds only while the row still has it
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     /**
      * comparation based on id
      *
@@ -0,0 +1,20 @@
+package com.company.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * maps a row of an association query to the associated entity
+ *
+ * @param <O> type of the entity owning the association
+ * @param <E> type of the associated entities
+ */
+interface AssociationMapper<O, E> {
+    /**
+     * @param row        current row
+     * @param owner      entity the association of the row belongs to
+     * @param identities teachers and courses already created by this load
+     * @return the associated entity of the row
+     */
+    E map(ResultSet row, O owner, IdentityMap identities) throws SQLException;
+}
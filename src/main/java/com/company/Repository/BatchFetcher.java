@@ -0,0 +1,114 @@
+package com.company.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * loads the lazy associations of the entities of one query, when one of them is used the associations of
+ * up to batchSize entities which were not used yet are loaded together with a single IN query;
+ * the query runs holding a ReentrantLock, not a monitor, so a virtual thread waiting for it does not pin its carrier
+ *
+ * @param <O> type of the entities owning the associations
+ * @param <E> type of the associated entities
+ */
+class BatchFetcher<O, E> {
+    private final DataSource dataSource;
+    private final String sql;
+    private final AssociationMapper<O, E> mapper;
+    private final int batchSize;
+    private final IdentityMap identities;
+    private final Map<Long, LazyList<E>> pending = new LinkedHashMap<>();
+    private final Map<Long, O> owners = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * @param dataSource where the connections come from
+     * @param selectIn   query whose first column is the id of the owner, ending with "where ... in "
+     * @param mapper     maps the rows to the associated entities
+     * @param batchSize  maximum number of associations loaded with one query
+     * @param identities teachers and courses of the load the owners come from
+     */
+    BatchFetcher(DataSource dataSource, String selectIn, AssociationMapper<O, E> mapper, int batchSize,
+                 IdentityMap identities) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch fetch size must be at least 1!");
+        this.dataSource = dataSource;
+        this.mapper = mapper;
+        this.batchSize = batchSize;
+        this.identities = identities;
+        // always batchSize parameters, so the same prepared statement serves every batch
+        StringBuilder in = new StringBuilder(selectIn).append('(');
+        for (int i = 0; i < batchSize; i++)
+            in.append(i == 0 ? "?" : ", ?");
+        this.sql = in.append(')').toString();
+    }
+
+    /**
+     * @param owner   entity owning the association
+     * @param ownerId id of the owner
+     * @return the association of the owner, not loaded yet
+     */
+    LazyList<E> lazyList(O owner, long ownerId) {
+        LazyList<E> list = new LazyList<>(ownerId, this);
+        lock.lock();
+        try {
+            pending.put(ownerId, list);
+            owners.put(ownerId, owner);
+        } finally {
+            lock.unlock();
+        }
+        return list;
+    }
+
+    /**
+     * loads the given list together with the next pending lists
+     *
+     * @param requested list which is used now
+     * @throws SQLException if connection to database could not succeed
+     */
+    void load(LazyList<E> requested) throws SQLException {
+        lock.lock();
+        try {
+            if (requested.isLoaded())
+                return;
+            Map<Long, List<E>> loaded = new LinkedHashMap<>();
+            loaded.put(requested.getOwnerId(), new ArrayList<>());
+            Iterator<Long> ids = pending.keySet().iterator();
+            while (loaded.size() < batchSize && ids.hasNext())
+                loaded.putIfAbsent(ids.next(), new ArrayList<>());
+            List<Long> batch = new ArrayList<>(loaded.keySet());
+
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(sql)) {
+                // the free parameters repeat the last id
+                for (int i = 0; i < batchSize; i++)
+                    statement.setLong(i + 1, batch.get(Math.min(i, batch.size() - 1)));
+                ResultSet rows = statement.executeQuery();
+                while (rows.next()) {
+                    long ownerId = rows.getLong(1);
+                    loaded.get(ownerId).add(mapper.map(rows, owners.get(ownerId), identities));
+                }
+            }
+            for (Map.Entry<Long, List<E>> entry : loaded.entrySet()) {
+                LazyList<E> list = pending.remove(entry.getKey());
+                owners.remove(entry.getKey());
+                if (list != null)
+                    list.fill(entry.getValue());
+            }
+            if (!requested.isLoaded())
+                requested.fill(loaded.get(requested.getOwnerId()));
+        } finally {
+            lock.unlock();
+        }
+    }
+}
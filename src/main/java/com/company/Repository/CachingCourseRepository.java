@@ -0,0 +1,96 @@
+package com.company.Repository;
+
+import com.company.Database.UnitOfWork;
+import com.company.Exceptions.NullException;
+import com.company.Model.Course;
+import com.company.Model.Teacher;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * CachingRepository in front of an ICourseRepository, the counting queries always go to the repository,
+ * the writes also evict the teacher of the course from the cache of teachers, whose list of courses changed
+ */
+public class CachingCourseRepository extends CachingRepository<Course> implements ICourseRepository {
+    private final ICourseRepository repository;
+    private final CachingRepository<Teacher> teachers;
+
+    public CachingCourseRepository(ICourseRepository repository, int maxSize, long ttlMillis, UnitOfWork unitOfWork) {
+        this(repository, maxSize, ttlMillis, unitOfWork, null);
+    }
+
+    /**
+     * @param teachers cache of the teachers of the courses or null
+     */
+    public CachingCourseRepository(ICourseRepository repository, int maxSize, long ttlMillis, UnitOfWork unitOfWork,
+                                   CachingRepository<Teacher> teachers) {
+        super(repository, Course::getCourseId, CachingCourseRepository::copy, maxSize, ttlMillis, unitOfWork);
+        this.repository = repository;
+        this.teachers = teachers;
+    }
+
+    /**
+     * @return the course with a copy of its teacher and of its list of students, the students are the same
+     */
+    static Course copy(Course course) {
+        Teacher teacher = course.getTeacher() == null ? null : CachingTeacherRepository.copy(course.getTeacher());
+        Course copy = new Course(course.getCourseId(), course.getName(), teacher, course.getMaxEnrollment(),
+                course.getCredits());
+        copy.setVersion(course.getVersion());
+        copy.setStudentsEnrolled(LazyList.copyOf(course.getStudentsEnrolled()));
+        return copy;
+    }
+
+    @Override
+    public List<EnrollmentCount> findWithFreePlaces() throws SQLException {
+        return repository.findWithFreePlaces();
+    }
+
+    @Override
+    public long[] findStudentIds(long courseId) throws SQLException {
+        return repository.findStudentIds(courseId);
+    }
+
+    @Override
+    public Course save(Course obj) throws NullException, SQLException {
+        try {
+            return super.save(obj);
+        } finally {
+            this.invalidateTeacherOf(obj);
+        }
+    }
+
+    @Override
+    public Course update(Course obj) throws NullException, SQLException {
+        // the course may move to another teacher, the cached course still knows the one it leaves
+        Course cached = obj == null ? null : this.peek(obj.getCourseId());
+        try {
+            return super.update(obj);
+        } finally {
+            this.invalidateTeacherOf(cached);
+            this.invalidateTeacherOf(obj);
+        }
+    }
+
+    @Override
+    public Course delete(Long id) throws NullException, SQLException {
+        Course cached = id == null ? null : this.peek(id);
+        Course deleted = null;
+        try {
+            deleted = super.delete(id);
+            return deleted;
+        } finally {
+            this.invalidateTeacherOf(cached);
+            this.invalidateTeacherOf(deleted);
+        }
+    }
+
+    /**
+     * evicts the teacher of the course now and once more when the unit of the write ends
+     */
+    private void invalidateTeacherOf(Course course) {
+        if (teachers != null && course != null && course.getTeacher() != null)
+            teachers.invalidate(course.getTeacher().getTeacherId());
+    }
+}
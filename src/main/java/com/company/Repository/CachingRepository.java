@@ -0,0 +1,279 @@
+package com.company.Repository;
+
+import com.company.Database.UnitOfWork;
+import com.company.Exceptions.NullException;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * read-through cache of the entities returned by findOne, in front of any ICrudRepository
+ * at most maxSize entities are kept, the least recently used one is evicted first, and an entity is
+ * loaded again after ttlMillis; save, update and delete go to the repository and evict the entity;
+ * the cached entities are never handed out, findOne gives a copy the caller may change
+ *
+ * @param <T> type of the entities
+ */
+public class CachingRepository<T> implements ICrudRepository<T> {
+    private final ICrudRepository<T> repository;
+    private final ToLongFunction<T> idOf;
+    private final UnaryOperator<T> copyOf;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final UnitOfWork unitOfWork;
+    private final Map<Long, CacheEntry<T>> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    // changed by every invalidation, so an entity loaded while it was changed is not cached
+    private long writeCount = 0;
+
+    public CachingRepository(ICrudRepository<T> repository, ToLongFunction<T> idOf, UnaryOperator<T> copyOf,
+                             int maxSize, long ttlMillis) {
+        this(repository, idOf, copyOf, maxSize, ttlMillis, null);
+    }
+
+    /**
+     * @param repository repository holding the entities
+     * @param idOf       gives the id of an entity
+     * @param copyOf     gives a copy of an entity, changing the copy or its lists must not change the entity
+     * @param maxSize    maximum number of cached entities
+     * @param ttlMillis  how long an entity is served from the cache
+     * @param unitOfWork units the repository takes part in or null, inside a unit the cache is not read nor filled
+     *                   because the unit may be rolled back, and its writes are evicted again when it ends
+     */
+    public CachingRepository(ICrudRepository<T> repository, ToLongFunction<T> idOf, UnaryOperator<T> copyOf,
+                             int maxSize, long ttlMillis, UnitOfWork unitOfWork) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Cache size must be at least 1!");
+        this.repository = repository;
+        this.idOf = idOf;
+        this.copyOf = copyOf;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.unitOfWork = unitOfWork;
+        // access order, so the eldest entry is the least recently used one
+        this.entries = new LinkedHashMap<Long, CacheEntry<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CacheEntry<T>> eldest) {
+                if (size() <= CachingRepository.this.maxSize)
+                    return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * gives a copy of the cached entity if it is not older than the ttl, otherwise loads it from the repository
+     *
+     * @param id the id of the entity to be returned id must not be null
+     * @return the entity with the specified id or null
+     * @throws NullException if input parameter id is NULL
+     * @throws SQLException  if connection to database could not succeed
+     */
+    @Override
+    public T findOne(Long id) throws NullException, SQLException {
+        if (id == null)
+            throw new NullException("Null id!");
+        if (unitOfWork != null && unitOfWork.inTransaction())
+            return repository.findOne(id);
+        long writesBefore;
+        synchronized (entries) {
+            writesBefore = writeCount;
+            CacheEntry<T> entry = entries.get(id);
+            if (entry != null) {
+                if (System.nanoTime() - entry.loadedAt < ttlNanos) {
+                    hits.incrementAndGet();
+                    return copyOf.apply(entry.entity);
+                }
+                entries.remove(id);
+                expirations.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        T entity = repository.findOne(id);
+        // missing entities are not cached, they may be saved at any time
+        if (entity == null)
+            return null;
+        synchronized (entries) {
+            if (writeCount != writesBefore)
+                return entity;
+            entries.put(id, new CacheEntry<>(entity, System.nanoTime()));
+        }
+        return copyOf.apply(entity);
+    }
+
+    @Override
+    public List<T> findAll() throws SQLException {
+        return repository.findAll();
+    }
+
+    @Override
+    public Page<T> findPage(Long afterId, int limit) throws SQLException {
+        return repository.findPage(afterId, limit);
+    }
+
+    @Override
+    public Stream<T> streamAll() throws SQLException {
+        return repository.streamAll();
+    }
+
+    @Override
+    public long count() throws SQLException {
+        return repository.count();
+    }
+
+    @Override
+    public T save(T obj) throws NullException, SQLException {
+        if (obj == null)
+            throw new NullException("Null object!");
+        try {
+            return repository.save(obj);
+        } finally {
+            this.invalidate(idOf.applyAsLong(obj));
+        }
+    }
+
+    @Override
+    public T update(T obj) throws NullException, SQLException {
+        if (obj == null)
+            throw new NullException("Null Object");
+        try {
+            return repository.update(obj);
+        } finally {
+            this.invalidate(idOf.applyAsLong(obj));
+        }
+    }
+
+    @Override
+    public T delete(Long id) throws NullException, SQLException {
+        if (id == null)
+            throw new NullException("Null id");
+        try {
+            return repository.delete(id);
+        } finally {
+            this.invalidate(id);
+        }
+    }
+
+    /**
+     * removes the entity with the given id from the cache, the next findOne loads it from the repository,
+     * an entity written inside a unit is removed once more when the unit ends, so a version read by others
+     * before the commit does not stay in the cache
+     */
+    public void invalidate(long id) {
+        this.evict(id);
+        if (unitOfWork != null)
+            unitOfWork.afterCompletion(() -> this.evict(id));
+    }
+
+    /**
+     * @return the cached entity with the given id, without counting a hit nor looking at its age, or null
+     */
+    protected T peek(long id) {
+        synchronized (entries) {
+            CacheEntry<T> entry = entries.get(id);
+            return entry == null ? null : entry.entity;
+        }
+    }
+
+    private void evict(long id) {
+        synchronized (entries) {
+            writeCount++;
+            entries.remove(id);
+        }
+    }
+
+    /**
+     * removes all entities from the cache after a write which may have changed any of them,
+     * inside a unit they are removed once more when the unit ends
+     */
+    public void invalidateAll() {
+        this.clear();
+        if (unitOfWork != null)
+            unitOfWork.afterCompletion(this::clear);
+    }
+
+    /**
+     * removes all entities from the cache
+     */
+    public void clear() {
+        synchronized (entries) {
+            writeCount++;
+            entries.clear();
+        }
+    }
+
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of entities removed because the cache was full
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return number of entities removed because they were older than the ttl
+     */
+    public long getExpirationCount() {
+        return expirations.get();
+    }
+
+    /**
+     * @return part of the findOne calls answered from the cache, between 0 and 1
+     */
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    @Override
+    public String toString() {
+        return "CachingRepository{" +
+                "size=" + this.getSize() +
+                ", maxSize=" + maxSize +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                ", expirations=" + expirations +
+                ", hitRate=" + String.format("%.2f", this.getHitRate()) +
+                '}';
+    }
+
+    private static class CacheEntry<T> {
+        private final T entity;
+        private final long loadedAt;
+
+        CacheEntry(T entity, long loadedAt) {
+            this.entity = entity;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.company.Repository;
+
+import com.company.Database.UnitOfWork;
+import com.company.Model.Student;
+
+import java.sql.SQLException;
+
+/**
+ * CachingRepository in front of an IStudentRepository, the bulk updates empty the cache
+ */
+public class CachingStudentRepository extends CachingRepository<Student> implements IStudentRepository {
+    private final IStudentRepository repository;
+
+    public CachingStudentRepository(IStudentRepository repository, int maxSize, long ttlMillis, UnitOfWork unitOfWork) {
+        super(repository, Student::getStudentId, CachingStudentRepository::copy, maxSize, ttlMillis, unitOfWork);
+        this.repository = repository;
+    }
+
+    /**
+     * @return the student with a copy of his list of courses, the courses are the same
+     */
+    static Student copy(Student student) {
+        Student copy = new Student(student.getStudentId(), student.getFirstName(), student.getLastName(),
+                student.getTotalCredits());
+        copy.setVersion(student.getVersion());
+        copy.setEnrolledCourses(LazyList.copyOf(student.getEnrolledCourses()));
+        return copy;
+    }
+
+    @Override
+    public int recomputeCredits() throws SQLException {
+        try {
+            return repository.recomputeCredits();
+        } finally {
+            this.invalidateAll();
+        }
+    }
+
+    @Override
+    public int addCredits(long courseId, int delta) throws SQLException {
+        try {
+            return repository.addCredits(courseId, delta);
+        } finally {
+            // the ids of the changed students are not known here
+            this.invalidateAll();
+        }
+    }
+
+    @Override
+    public void enrollAll(long[] studentIds, long[] courseIds) throws SQLException {
+        try {
+            repository.enrollAll(studentIds, courseIds);
+        } finally {
+            for (long studentId : studentIds)
+                this.invalidate(studentId);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.company.Repository;
+
+import com.company.Database.UnitOfWork;
+import com.company.Model.Teacher;
+
+/**
+ * CachingRepository of teachers, the course writes of a CachingCourseRepository evict the teacher of the course
+ */
+public class CachingTeacherRepository extends CachingRepository<Teacher> {
+
+    public CachingTeacherRepository(ICrudRepository<Teacher> repository, int maxSize, long ttlMillis,
+                                    UnitOfWork unitOfWork) {
+        super(repository, Teacher::getTeacherId, CachingTeacherRepository::copy, maxSize, ttlMillis, unitOfWork);
+    }
+
+    /**
+     * @return the teacher with a copy of his list of courses, the courses are the same
+     */
+    static Teacher copy(Teacher teacher) {
+        Teacher copy = new Teacher(teacher.getTeacherId(), teacher.getFirstName(), teacher.getLastName());
+        copy.setCourses(LazyList.copyOf(teacher.getCourses()));
+        return copy;
+    }
+}
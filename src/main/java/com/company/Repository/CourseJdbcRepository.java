@@ -1,32 +1,105 @@
 package com.company.Repository;
 
 import com.company.Exceptions.NullException;
+import com.company.Exceptions.StaleEntityException;
 import com.company.Model.Course;
 import com.company.Model.Student;
 import com.company.Model.Teacher;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
- * CourseJdbcRepository implementing ICrudRepository<Course>
+ * CourseJdbcRepository implementing ICourseRepository
  */
-public class CourseJdbcRepository implements ICrudRepository<Course> {
-    private String dbUrl;
-    private String user;
-    private String password;
-    private Connection connection;
+public class CourseJdbcRepository implements ICourseRepository {
+    private static final String SELECT_COURSE = "SELECT c.courseId, c.name, t.teacherId, t.firstName, t.lastName, c.maxEnrollment, c.credits, c.version " +
+            "FROM Courses c left outer join Teachers t on c.teacherId = t.teacherId where c.courseId = ?";
+    private static final String SELECT_COURSES = "SELECT c.courseId, c.name, t.teacherId, t.firstName, t.lastName, c.maxEnrollment, c.credits, c.version " +
+            "FROM Courses c left outer join Teachers t on c.teacherId = t.teacherId";
+    private static final String SELECT_ENROLLED = "SELECT s.studentId, s.firstName, s.lastName, s.totalCredits, s.version " +
+            "FROM Enrolled e inner join Students s on e.studentId = s.studentId " +
+            "where e.courseId = ?";
+    private static final String SELECT_ENROLLED_IN = "SELECT e.courseId, s.studentId, s.firstName, s.lastName, s.totalCredits, s.version " +
+            "FROM Enrolled e inner join Students s on e.studentId = s.studentId " +
+            "where e.courseId in ";
+    private static final String JOINED_COLUMNS = "SELECT c.courseId, c.name, c.maxEnrollment, c.credits, c.version, " +
+            "t.teacherId, t.firstName AS teacherFirstName, t.lastName AS teacherLastName, " +
+            "s.studentId, s.firstName, s.lastName, s.totalCredits, s.version AS studentVersion ";
+    private static final String JOINED_STUDENTS = "left outer join Teachers t on c.teacherId = t.teacherId " +
+            "left outer join (Enrolled e inner join Students s on e.studentId = s.studentId) on e.courseId = c.courseId " +
+            "order by c.courseId";
+    private static final String SELECT_JOINED = JOINED_COLUMNS + "FROM Courses c " + JOINED_STUDENTS;
+    //the derived table seeks the page on the primary key, then the teachers and students of the page are joined to it
+    private static final String SELECT_PAGE = JOINED_COLUMNS +
+            "FROM (SELECT courseId, name, teacherId, maxEnrollment, credits, version FROM Courses " +
+            "WHERE courseId > ? order by courseId LIMIT ?) c " + JOINED_STUDENTS;
+    private static final String COUNT_COURSES = "SELECT COUNT(*) FROM Courses";
+    //the Enrolled tuples are counted by one GROUP BY on the index of the courseId foreign key, no student row is read
+    private static final String SELECT_FREE_PLACES = "SELECT c.courseId, c.name, t.teacherId, t.firstName, t.lastName, " +
+            "c.maxEnrollment, c.credits, c.version, COALESCE(e.enrolled, 0) AS enrolled " +
+            "FROM Courses c left outer join Teachers t on c.teacherId = t.teacherId " +
+            "left outer join (SELECT courseId, COUNT(*) AS enrolled FROM Enrolled GROUP BY courseId) e on e.courseId = c.courseId " +
+            "where COALESCE(e.enrolled, 0) < c.maxEnrollment order by c.courseId";
+    private static final String SELECT_TEACHER = "SELECT teacherId, firstName, lastName FROM Teachers WHERE teacherId = ?";
+    private static final String INSERT_TEACHER = "INSERT INTO Teachers (teacherId, firstName, lastName) values (?, ?, ?)";
+    private static final String INSERT_COURSE = "INSERT INTO Courses (courseId, name, credits, teacherId, maxEnrollment) values (?, ?, ?, ?, ?)";
+    private static final String UPDATE_COURSE = "UPDATE Courses set name = ?, teacherId = ?, maxEnrollment = ?, credits = ?, version = version + 1 " +
+            "where courseId = ? and version = ?";
+    private static final String SELECT_STUDENT_IDS = "SELECT studentId FROM Enrolled WHERE courseId = ? ORDER BY studentId";
+    private static final String SELECT_COURSE_ROW = "SELECT * FROM Courses WHERE courseId = ?";
 
-    public CourseJdbcRepository() throws SQLException {
-        this.dbUrl = "jdbc:mysql://localhost/maplab5";
-        this.user = "victor";
-        this.password = "victorgugugaga";
-        this.connection = DriverManager.getConnection(dbUrl, user, password);
+    //maps the rows of SELECT_ENROLLED and SELECT_ENROLLED_IN, a student of several courses is created once per load
+    private static final AssociationMapper<Course, Student> STUDENT_ROWS = (row, course, identities) ->
+            identities.student(row, "firstName", "lastName", "version");
+
+    //maps the rows of SELECT_JOINED and SELECT_PAGE, a course without students has a single row with null student columns
+    private static final JoinedRowMapper<Course> JOINED_ROWS = new JoinedRowMapper<Course>() {
+        @Override
+        public long id(ResultSet row) throws SQLException {
+            return row.getLong("courseId");
+        }
+
+        @Override
+        public Course mapEntity(ResultSet row, IdentityMap identities) throws SQLException {
+            //all the courses of a teacher share the same Teacher instance
+            Course course = new Course(row.getLong("courseId"),
+                    row.getString("name"),
+                    identities.teacher(row, "teacherFirstName", "teacherLastName"),
+                    row.getInt("maxEnrollment"),
+                    row.getInt("credits"));
+            course.setVersion(row.getInt("version"));
+            course.setStudentsEnrolled(new ArrayList<>());
+            return course;
+        }
+
+        @Override
+        public void mapAssociation(Course course, ResultSet row, IdentityMap identities) throws SQLException {
+            row.getLong("studentId");
+            if (row.wasNull())
+                return;
+            //all the courses of a student share the same Student instance
+            course.getStudentsEnrolled().add(identities.student(row, "firstName", "lastName", "studentVersion"));
+        }
+    };
+
+    private final DataSource dataSource;
+    private FetchMode fetchMode = FetchMode.JOIN;
+    private int fetchSize = 500;
+    private int batchFetchSize = 25;
+    private final EnrolledWriter enrolledWriter = new EnrolledWriter();
+
+    public CourseJdbcRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
 
     /**
-     * Querying the Courses, Teachers, Students and Enrolled tables in the database to find course and its enrolled students and the teacher with the given teacherId
+     * Querying the Courses and Teachers tables in the database to find the course and its teacher,
+     * the enrolled students are loaded from the Enrolled and Students tables the first time they are used
      *
      * @param id -the id of the entity to be returned id must not be null
      * @return the entity with the specified id or null
@@ -39,40 +112,54 @@ public class CourseJdbcRepository implements ICrudRepository<Course> {
             throw new NullException("Null id!");
         }
         Course newCourse;
-        List<Student> enrolledStudents = new ArrayList<>();
-        String queryCourse = "SELECT c.courseId,c.name,t.teacherId,t.firstName,t.lastName,c.maxEnrollment,c.credits " +
-                "FROM Courses c left outer join Teachers t on c.teacherId = t.teacherId where c.courseId = '" + id + "'";
-        String queryEnrolled = "SELECT s.studentId, s.firstName, s.lastName, s.totalCredits " +
-                "FROM Enrolled e inner join Students s on e.studentId = s.studentId " +
-                "where e.courseId = '" + id + "'";
-        Statement statement = connection.createStatement();
-        ResultSet resultCourse = statement.executeQuery(queryCourse);
-
-        //if the given courseId was found
-        if (resultCourse.next()) {
-            newCourse = new Course(resultCourse.getLong("courseId"),
-                    resultCourse.getString("name"),
-                    new Teacher(resultCourse.getLong("teacherId"),
-                            resultCourse.getString("firstName"),
-                            resultCourse.getString("lastName")),
-                    resultCourse.getInt("maxEnrollment"),
-                    resultCourse.getInt("credits"));
-            Statement statement2 = connection.createStatement();
-            ResultSet resultEnrolled = statement2.executeQuery(queryEnrolled);
-
-            //finds the students enrolled to the given courseId
-            while (resultEnrolled.next()) {
-                Student student = new Student(resultEnrolled.getLong("studentId"),
-                        resultEnrolled.getString("firstName"),
-                        resultEnrolled.getString("lastName"),
-                        resultEnrolled.getInt("totalCredits"));
-                enrolledStudents.add(student);
-            }
-            newCourse.setStudentsEnrolled(enrolledStudents);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_COURSE)) {
+            statement.setLong(1, id);
+            ResultSet resultCourse = statement.executeQuery();
+            //if the given courseId was not found
+            if (!resultCourse.next())
+                return null;
+            newCourse = this.mapCourse(resultCourse, new IdentityMap());
+        }
+        //the students enrolled to the given courseId are loaded when they are first used
+        newCourse.setStudentsEnrolled(new BatchFetcher<>(dataSource, SELECT_ENROLLED_IN, STUDENT_ROWS, 1, new IdentityMap())
+                .lazyList(newCourse, id));
+        return newCourse;
+    }
 
-            return newCourse;
-        } else
-            return null;
+    /**
+     * creates the course from the current row of a Courses left outer join Teachers query,
+     * the teacher is taken from the identity map of the load
+     */
+    private Course mapCourse(ResultSet resultCourse, IdentityMap identities) throws SQLException {
+        Course course = new Course(resultCourse.getLong("courseId"),
+                resultCourse.getString("name"),
+                identities.teacher(resultCourse, "firstName", "lastName"),
+                resultCourse.getInt("maxEnrollment"),
+                resultCourse.getInt("credits"));
+        course.setVersion(resultCourse.getInt("version"));
+        return course;
+    }
+
+    /**
+     * finds the students enrolled to the given course
+     *
+     * @param connection connection the query runs on
+     * @param id         id of the course
+     * @param identities students created before in this load
+     * @return students enrolled to the course
+     * @throws SQLException if connection to database could not succeed
+     */
+    private List<Student> findEnrolledStudents(Connection connection, long id, IdentityMap identities)
+            throws SQLException {
+        List<Student> enrolledStudents = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_ENROLLED)) {
+            statement.setLong(1, id);
+            ResultSet resultEnrolled = statement.executeQuery();
+            while (resultEnrolled.next())
+                enrolledStudents.add(STUDENT_ROWS.map(resultEnrolled, null, identities));
+        }
+        return enrolledStudents;
     }
 
     /**
@@ -83,41 +170,255 @@ public class CourseJdbcRepository implements ICrudRepository<Course> {
      */
     @Override
     public List<Course> findAll() throws SQLException {
-        List<Course> courses = new ArrayList<>();
-        Course newCourse = null;
-        long id;
-        String queryCourse = "SELECT c.courseId,c.name,t.teacherId,t.firstName,t.lastName,c.maxEnrollment,c.credits " +
-                "FROM Courses c left outer join Teachers t on c.teacherId = t.teacherId ";
-        Statement statement = connection.createStatement();
-        ResultSet resultCourse = statement.executeQuery(queryCourse);
-
-        while (resultCourse.next()) {
-            newCourse = new Course(resultCourse.getLong("courseId"),
-                    resultCourse.getString("name"),
-                    new Teacher(resultCourse.getLong("teacherId"),
-                            resultCourse.getString("firstName"),
-                            resultCourse.getString("lastName")),
-                    resultCourse.getInt("maxEnrollment"),
-                    resultCourse.getInt("credits"));
-            id = resultCourse.getLong("courseId");
-            String queryEnrolled = "SELECT s.studentId, s.firstName, s.lastName, s.totalCredits " +
-                    "FROM Enrolled e inner join Students s on e.studentId = s.studentId " +
-                    "where e.courseId = '" + id + "'";
-            Statement statement2 = connection.createStatement();
-            ResultSet resultEnrolled = statement2.executeQuery(queryEnrolled);
-
-            List<Student> enrolledStudents = new ArrayList<>();
-            while (resultEnrolled.next()) {
-                Student student = new Student(resultEnrolled.getLong("studentId"),
-                        resultEnrolled.getString("firstName"),
-                        resultEnrolled.getString("lastName"),
-                        resultEnrolled.getInt("totalCredits"));
-                enrolledStudents.add(student);
+        switch (fetchMode) {
+            case JOIN:
+                return this.findAllJoined();
+            case LAZY:
+                return this.findAllLazy();
+            default:
+                return this.findAllBySelect();
+        }
+    }
+
+    /**
+     * loads the courses and their teachers only, the students enrolled to the courses are loaded when first used,
+     * batchFetchSize courses at a time
+     *
+     * @return list with all courses
+     * @throws SQLException if connection to database could not succeed
+     */
+    private List<Course> findAllLazy() throws SQLException {
+        IdentityMap identities = new IdentityMap();
+        BatchFetcher<Course, Student> fetcher = new BatchFetcher<>(dataSource, SELECT_ENROLLED_IN, STUDENT_ROWS, batchFetchSize,
+                identities);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_COURSES)) {
+            List<Course> courses = new ArrayList<>();
+            ResultSet resultCourse = statement.executeQuery();
+            while (resultCourse.next()) {
+                Course newCourse = this.mapCourse(resultCourse, identities);
+                newCourse.setStudentsEnrolled(fetcher.lazyList(newCourse, newCourse.getCourseId()));
+                courses.add(newCourse);
+            }
+            return courses;
+        }
+    }
+
+    /**
+     * loads the courses and, with one more query for each course, the students enrolled to it
+     *
+     * @return list with all courses
+     * @throws SQLException if connection to database could not succeed
+     */
+    private List<Course> findAllBySelect() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            List<Course> courses = new ArrayList<>();
+            IdentityMap identities = new IdentityMap();
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_COURSES)) {
+                ResultSet resultCourse = statement.executeQuery();
+                while (resultCourse.next()) {
+                    Course newCourse = this.mapCourse(resultCourse, identities);
+                    newCourse.setStudentsEnrolled(this.findEnrolledStudents(connection, newCourse.getCourseId(), identities));
+                    courses.add(newCourse);
+                }
+            }
+            return courses;
+        }
+    }
+
+    /**
+     * loads the courses together with their teachers and rosters in a single query,
+     * the rows are ordered by courseId so all the rows of a course come one after another
+     *
+     * @return list with all courses
+     * @throws SQLException if connection to database could not succeed
+     */
+    private List<Course> findAllJoined() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_JOINED)) {
+            return this.readJoined(statement.executeQuery());
+        }
+    }
+
+    /**
+     * loads one page of courses together with their teachers and students in a single query
+     *
+     * @param afterId id of the last course of the previous page or null for the first page
+     * @param limit   maximum number of courses of the page, at least 1
+     * @return the page of courses
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public Page<Course> findPage(Long afterId, int limit) throws SQLException {
+        if (limit < 1)
+            throw new IllegalArgumentException("Page limit must be at least 1!");
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_PAGE)) {
+            statement.setLong(1, afterId == null ? Long.MIN_VALUE : afterId);
+            //one more course than asked tells if there is a next page
+            statement.setInt(2, limit + 1);
+            List<Course> courses = this.readJoined(statement.executeQuery());
+            if (courses.size() <= limit)
+                return new Page<>(courses, null);
+            courses.remove(limit);
+            return new Page<>(courses, courses.get(limit - 1).getCourseId());
+        }
+    }
+
+    /**
+     * streams the courses together with their students from a forward-only cursor, which fetches fetchSize rows at a time,
+     * so only the rows of one fetch are held in memory; the stream holds a connection until it is closed
+     *
+     * @return stream of all courses, to be closed after use
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public Stream<Course> streamAll() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            PreparedStatement statement = connection.prepareStatement(SELECT_JOINED,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return new JoinedCursor<>(statement.executeQuery(), JOINED_ROWS, statement, connection).stream();
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * builds the courses from the rows of a join ordered by courseId
+     *
+     * @param resultJoined rows of the join
+     * @return list with the courses of the rows
+     * @throws SQLException if connection to database could not succeed
+     */
+    private List<Course> readJoined(ResultSet resultJoined) throws SQLException {
+        return new JoinedCursor<>(resultJoined, JOINED_ROWS, null, null).toList();
+    }
+
+    /**
+     * counts the tuples in the Courses table without loading the courses
+     *
+     * @return number of courses
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public long count() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(COUNT_COURSES)) {
+            ResultSet resultCount = statement.executeQuery();
+            resultCount.next();
+            return resultCount.getLong(1);
+        }
+    }
+
+    /**
+     * Querying the Courses and Teachers tables together with the number of Enrolled tuples of each course,
+     * the enrolled students are loaded when first used, batchFetchSize courses at a time
+     *
+     * @return the courses with free places and the number of their students
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public List<EnrollmentCount> findWithFreePlaces() throws SQLException {
+        IdentityMap identities = new IdentityMap();
+        BatchFetcher<Course, Student> fetcher = new BatchFetcher<>(dataSource, SELECT_ENROLLED_IN, STUDENT_ROWS, batchFetchSize,
+                identities);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_FREE_PLACES)) {
+            List<EnrollmentCount> counts = new ArrayList<>();
+            ResultSet resultCourse = statement.executeQuery();
+            while (resultCourse.next()) {
+                Course newCourse = this.mapCourse(resultCourse, identities);
+                newCourse.setStudentsEnrolled(fetcher.lazyList(newCourse, newCourse.getCourseId()));
+                counts.add(new EnrollmentCount(newCourse, resultCourse.getInt("enrolled")));
             }
-            newCourse.setStudentsEnrolled(enrolledStudents);
-            courses.add(newCourse);
+            return counts;
         }
-        return courses;
+    }
+
+    /**
+     * Querying the Enrolled table on the index of its courseId foreign key
+     *
+     * @param courseId id of the course
+     * @return the ids of the enrolled students in ascending order
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public long[] findStudentIds(long courseId) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_STUDENT_IDS)) {
+            statement.setLong(1, courseId);
+            ResultSet resultIds = statement.executeQuery();
+            long[] ids = new long[16];
+            int count = 0;
+            while (resultIds.next()) {
+                if (count == ids.length)
+                    ids = Arrays.copyOf(ids, count * 2);
+                ids[count++] = resultIds.getLong(1);
+            }
+            return Arrays.copyOf(ids, count);
+        }
+    }
+
+    public int getBatchSize() {
+        return enrolledWriter.getBatchSize();
+    }
+
+    /**
+     * @param batchSize number of Enrolled tuples sent to the database in one batch
+     */
+    public void setBatchSize(int batchSize) {
+        enrolledWriter.setBatchSize(batchSize);
+    }
+
+    /**
+     * @return number of Enrolled tuples inserted by this repository
+     */
+    public long getEnrolledInserts() {
+        return enrolledWriter.getInsertedCount();
+    }
+
+    /**
+     * @return number of Enrolled tuples deleted by this repository
+     */
+    public long getEnrolledDeletes() {
+        return enrolledWriter.getDeletedCount();
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * @param fetchSize number of rows fetched at a time by the cursor of streamAll
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 1)
+            throw new IllegalArgumentException("Fetch size must be at least 1!");
+        this.fetchSize = fetchSize;
+    }
+
+    public int getBatchFetchSize() {
+        return batchFetchSize;
+    }
+
+    /**
+     * @param batchFetchSize number of lazy associations loaded together in the LAZY fetch mode
+     */
+    public void setBatchFetchSize(int batchFetchSize) {
+        if (batchFetchSize < 1)
+            throw new IllegalArgumentException("Batch fetch size must be at least 1!");
+        this.batchFetchSize = batchFetchSize;
+    }
+
+    public FetchMode getFetchMode() {
+        return fetchMode;
+    }
+
+    public void setFetchMode(FetchMode fetchMode) {
+        this.fetchMode = fetchMode;
     }
 
     /**
@@ -136,33 +437,29 @@ public class CourseJdbcRepository implements ICrudRepository<Course> {
         Course existingCourse = this.findOne(obj.getCourseId());
         if (existingCourse != null) {
             return existingCourse;
-        } else {
-            String queryTeacher = "SELECT teacherId, firstName, lastName FROM Teachers " +
-                    "WHERE teacherId = '" + obj.getTeacher().getTeacherId() + "'";
-            Statement statement = connection.createStatement();
-            ResultSet resultTeacher = statement.executeQuery(queryTeacher);
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_TEACHER);
+             PreparedStatement insertCourseStmt = connection.prepareStatement(INSERT_COURSE)) {
+            Teacher teacher = obj.getTeacher();
+            statement.setLong(1, teacher.getTeacherId());
+            ResultSet resultTeacher = statement.executeQuery();
             if (!resultTeacher.next()) {
-                String insertTeacher = "INSERT INTO Teachers (teacherId, firstName, lastName) values ('" + obj.getTeacher().getTeacherId() + "', '"
-                        + obj.getTeacher().getFirstName() + "', '"
-                        + obj.getTeacher().getLastName() + "')";
-                Statement insertStmt = connection.createStatement();
-                insertStmt.executeUpdate(insertTeacher);
+                try (PreparedStatement insertStmt = connection.prepareStatement(INSERT_TEACHER)) {
+                    insertStmt.setLong(1, teacher.getTeacherId());
+                    insertStmt.setString(2, teacher.getFirstName());
+                    insertStmt.setString(3, teacher.getLastName());
+                    insertStmt.executeUpdate();
+                }
             }
             //insert Course
-            String insertCourse = "INSERT INTO Courses (courseId, name, credits, teacherId, maxEnrollment) " +
-                    "values ('" + obj.getCourseId() + "', '"
-                    + obj.getName() + "', '"
-                    + obj.getCredits() + "', '"
-                    + obj.getTeacher().getTeacherId() + "', '"
-                    + obj.getMaxEnrollment() + "')";
-            Statement insertEnrollStmt = connection.createStatement();
-            insertEnrollStmt.executeUpdate(insertCourse);
-            for (Student s : obj.getStudentsEnrolled()) {
-                String insertEnroll = "INSERT INTO Enrolled (studentId, courseId) values ('" + s.getStudentId() + "', '"
-                        + obj.getCourseId() + "')";
-                Statement enrollStmt = connection.createStatement();
-                enrollStmt.executeUpdate(insertEnroll);
-            }
+            insertCourseStmt.setLong(1, obj.getCourseId());
+            insertCourseStmt.setString(2, obj.getName());
+            insertCourseStmt.setInt(3, obj.getCredits());
+            insertCourseStmt.setLong(4, teacher.getTeacherId());
+            insertCourseStmt.setInt(5, obj.getMaxEnrollment());
+            insertCourseStmt.executeUpdate();
+            enrolledWriter.insertStudents(connection, obj.getCourseId(), this.studentIds(obj));
             return null;
         }
     }
@@ -173,6 +470,7 @@ public class CourseJdbcRepository implements ICrudRepository<Course> {
      *
      * @param obj entity must not be null
      * @return null if the entity is updated, otherwise returns the entity
+     * @throws StaleEntityException if the row was changed by another writer since the entity was read
      * @throws SQLException  if connection to database could not succeed
      * @throws NullException if input parameter entity obj is NULL
      */
@@ -180,31 +478,25 @@ public class CourseJdbcRepository implements ICrudRepository<Course> {
     public Course update(Course obj) throws SQLException, NullException {
         if (obj == null)
             throw new NullException("Null Object");
-        Course existingCourse = this.findOne(obj.getCourseId());
-        if (existingCourse == null) {
-            return obj;
-        } else {
-            String updateSql = "UPDATE Courses set name ='" + obj.getName() + "', teacherId = '"
-                    + obj.getTeacher().getTeacherId() + "', maxEnrollment = '" + obj.getMaxEnrollment()
-                    + "', credits = '" + obj.getCredits() + "'where courseId = '"
-                    + obj.getCourseId() + "'";
-            Statement updateStmt = connection.createStatement();
-            updateStmt.executeUpdate(updateSql);
-            String deleteEnrolled = "SELECT *" +
-                    "FROM Enrolled e " +
-                    "where e.courseId = '" + obj.getCourseId() + "'";
-            Statement statement2 = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_UPDATABLE);
-            ResultSet resultEnrolled = statement2.executeQuery(deleteEnrolled);
-            while (resultEnrolled.next()) {
-                resultEnrolled.deleteRow();
-            }
-            //adding again the current Enrolled tuples with the students for the given course
-            for (Student s : obj.getStudentsEnrolled()) {
-                String insertEnroll = "INSERT INTO Enrolled (studentId, courseId) values ('" + s.getStudentId() + "', '"
-                        + obj.getCourseId() + "')";
-                Statement enrollStmt = connection.createStatement();
-                enrollStmt.executeUpdate(insertEnroll);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement updateStmt = connection.prepareStatement(UPDATE_COURSE)) {
+            updateStmt.setString(1, obj.getName());
+            updateStmt.setLong(2, obj.getTeacher().getTeacherId());
+            updateStmt.setInt(3, obj.getMaxEnrollment());
+            updateStmt.setInt(4, obj.getCredits());
+            updateStmt.setLong(5, obj.getCourseId());
+            updateStmt.setInt(6, obj.getVersion());
+            //no matched row means there is no course with this id or its row was written since the course was read
+            if (updateStmt.executeUpdate() == 0) {
+                if (this.exists(connection, obj.getCourseId()))
+                    throw new StaleEntityException("Course " + obj.getCourseId() + " was changed by another writer!");
+                return obj;
             }
+            obj.setVersion(obj.getVersion() + 1);
+            //writes only the Enrolled tuples which changed since the course was loaded,
+            //students which were never loaded can not have changed
+            if (LazyList.isLoaded(obj.getStudentsEnrolled()))
+                enrolledWriter.syncStudents(connection, obj.getCourseId(), this.studentIds(obj));
             return null;
         }
     }
@@ -222,25 +514,41 @@ public class CourseJdbcRepository implements ICrudRepository<Course> {
         if (id == null)
             throw new NullException("Null id");
         Course course = this.findOne(id);
-        if (course != null) {
-            String selectAll = "SELECT * FROM Courses " +
-                    "WHERE courseId = '" + id + "'";
-            Statement deleteStmt = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_UPDATABLE);
-            ResultSet deleteResultSet = deleteStmt.executeQuery(selectAll);
+        if (course == null) {
+            return null;
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement deleteStmt = connection.prepareStatement(SELECT_COURSE_ROW,
+                     ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_UPDATABLE)) {
+            deleteStmt.setLong(1, id);
+            ResultSet deleteResultSet = deleteStmt.executeQuery();
             //if course exists in the table
             if (deleteResultSet.next()) {
-                String queryEnrolled = "SELECT *" +
-                        "FROM Enrolled e " +
-                        "where e.courseId = '" + id + "'";
-                Statement statement2 = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_UPDATABLE);
-                ResultSet resultEnrolled = statement2.executeQuery(queryEnrolled);
                 //deleting all Enrolled tuples for the given course
-                while (resultEnrolled.next()) {
-                    resultEnrolled.deleteRow();
-                }
+                enrolledWriter.deleteAllOfCourse(connection, id);
                 deleteResultSet.deleteRow();
             }
+            return course;
+        }
+    }
+
+    /**
+     * @return ids of the students enrolled to the course
+     */
+    private List<Long> studentIds(Course obj) {
+        List<Long> ids = new ArrayList<>();
+        for (Student s : obj.getStudentsEnrolled())
+            ids.add(s.getStudentId());
+        return ids;
+    }
+
+    /**
+     * @return true if there is a course with the given id
+     */
+    private boolean exists(Connection connection, long id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_COURSE_ROW)) {
+            statement.setLong(1, id);
+            return statement.executeQuery().next();
         }
-        return course;
     }
 }
@@ -0,0 +1,132 @@
+package com.company.Repository;
+
+import com.company.Database.InMemoryDatabase;
+import com.company.Exceptions.NullException;
+import com.company.Model.Course;
+import com.company.Model.Student;
+import com.company.Model.Teacher;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CourseMemoryRepository implementing ICourseRepository on the in-memory database
+ */
+public class CourseMemoryRepository extends MemoryRepository<Course> implements ICourseRepository {
+    public CourseMemoryRepository(InMemoryDatabase database) {
+        super(database);
+    }
+
+    @Override
+    protected long[] ids() {
+        return database.courseIds();
+    }
+
+    /**
+     * builds the course with its teacher and its enrolled students
+     */
+    @Override
+    protected Course load(long id) {
+        Course course = database.course(id);
+        if (course == null)
+            return null;
+        for (long studentId : database.studentsOfCourse(id))
+            course.getStudentsEnrolled().add(database.student(studentId));
+        return course;
+    }
+
+    @Override
+    public long count() {
+        return database.read(database::courseCount);
+    }
+
+    /**
+     * counts the students of each course on the enrollment sets, only the courses with free places are built
+     */
+    @Override
+    public List<EnrollmentCount> findWithFreePlaces() {
+        return database.read(() -> {
+            List<EnrollmentCount> counts = new ArrayList<>();
+            for (long id : database.courseIds()) {
+                Course course = database.course(id);
+                int enrolled = database.enrolledCount(id);
+                if (enrolled < course.getMaxEnrollment())
+                    counts.add(new EnrollmentCount(this.load(id), enrolled));
+            }
+            return counts;
+        });
+    }
+
+    @Override
+    public long[] findStudentIds(long courseId) {
+        return database.read(() -> database.studentsOfCourse(courseId));
+    }
+
+    /**
+     * adds the course, its teacher if he does not exist yet and the Enrolled tuples of its students
+     *
+     * @param obj entity must be not null
+     * @return null if the given entity is saved otherwise returns the existing entity
+     * @throws SQLException  if a student of the course does not exist
+     * @throws NullException if input parameter entity obj is NULL
+     */
+    @Override
+    public Course save(Course obj) throws SQLException, NullException {
+        if (obj == null)
+            throw new NullException("Null object!");
+        return database.write(() -> {
+            if (database.containsCourse(obj.getCourseId()))
+                return this.load(obj.getCourseId());
+            Teacher teacher = obj.getTeacher();
+            if (!database.containsTeacher(teacher.getTeacherId()))
+                database.putTeacher(teacher);
+            database.putCourse(obj);
+            for (Student s : obj.getStudentsEnrolled())
+                database.enroll(s.getStudentId(), obj.getCourseId());
+            return null;
+        });
+    }
+
+    /**
+     * updates the attributes of the course and brings its Enrolled tuples in line with its students
+     *
+     * @param obj entity must not be null
+     * @return null if the entity is updated, otherwise returns the entity
+     * @throws SQLException  if the teacher or a student of the course does not exist
+     * @throws NullException if input parameter entity obj is NULL
+     */
+    @Override
+    public Course update(Course obj) throws SQLException, NullException {
+        if (obj == null)
+            throw new NullException("Null Object");
+        return database.write(() -> {
+            long id = obj.getCourseId();
+            if (!database.containsCourse(id))
+                return obj;
+            database.putCourse(obj);
+            database.syncStudentsOfCourse(id, obj.getStudentsEnrolled().stream()
+                    .mapToLong(Student::getStudentId).toArray());
+            return null;
+        });
+    }
+
+    /**
+     * removes the course and its Enrolled tuples
+     *
+     * @param id id must be not null
+     * @return the removed entity or null
+     * @throws SQLException  never for the in-memory database
+     * @throws NullException if input parameter id is NULL
+     */
+    @Override
+    public Course delete(Long id) throws SQLException, NullException {
+        if (id == null)
+            throw new NullException("Null id");
+        return database.write(() -> {
+            Course course = this.load(id);
+            database.removeCourse(id);
+            return course;
+        });
+    }
+}
@@ -3,15 +3,17 @@ package com.company.Repository;
 import com.company.Exceptions.NullException;
 import com.company.Model.Course;
 
+import javax.sql.DataSource;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Course com.company.Repository that extends an in-DataBase-com.company.Repository
  */
 public class CourseRepository extends CourseJdbcRepository {
-    public CourseRepository() throws SQLException {
-        super();
+    public CourseRepository(DataSource dataSource) {
+        super(dataSource);
     }
 
     /**
@@ -38,6 +40,41 @@ public class CourseRepository extends CourseJdbcRepository {
         return super.findAll();
     }
 
+    /**
+     * retrieves one page of entities ordered by id
+     *
+     * @param afterId id of the last entity of the previous page or null for the first page
+     * @param limit   maximum number of entities of the page
+     * @return the page of entities
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public Page<Course> findPage(Long afterId, int limit) throws SQLException {
+        return super.findPage(afterId, limit);
+    }
+
+    /**
+     * streams all entities of the repository
+     *
+     * @return stream of all entities, to be closed after use
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public Stream<Course> streamAll() throws SQLException {
+        return super.streamAll();
+    }
+
+    /**
+     * counts the entities in the repository
+     *
+     * @return number of entities
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public long count() throws SQLException {
+        return super.count();
+    }
+
     /**
      * adds an entity in the repository
      *
@@ -76,4 +113,27 @@ public class CourseRepository extends CourseJdbcRepository {
     public Course delete(Long id) throws SQLException, NullException {
         return super.delete(id);
     }
+
+    /**
+     * retrieves the courses with free places together with the number of their students
+     *
+     * @return the courses with free places
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public List<EnrollmentCount> findWithFreePlaces() throws SQLException {
+        return super.findWithFreePlaces();
+    }
+
+    /**
+     * retrieves the ids of the students enrolled to the course
+     *
+     * @param courseId id of the course
+     * @return the ids of the enrolled students in ascending order
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public long[] findStudentIds(long courseId) throws SQLException {
+        return super.findStudentIds(courseId);
+    }
 }
@@ -0,0 +1,196 @@
+package com.company.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * writes the tuples of the Enrolled table for the student and the course repositories,
+ * the rows are sent to the database in JDBC batches of batchSize rows
+ */
+class EnrolledWriter {
+    private static final String INSERT_ENROLLED = "INSERT INTO Enrolled (studentId, courseId) values (?, ?)";
+    private static final String DELETE_ENROLLED = "DELETE FROM Enrolled WHERE studentId = ? and courseId = ?";
+    private static final String SELECT_COURSE_IDS = "SELECT courseId FROM Enrolled WHERE studentId = ?";
+    private static final String SELECT_STUDENT_IDS = "SELECT studentId FROM Enrolled WHERE courseId = ?";
+    private static final String DELETE_FOR_STUDENT = "DELETE FROM Enrolled WHERE studentId = ?";
+    private static final String DELETE_FOR_COURSE = "DELETE FROM Enrolled WHERE courseId = ?";
+
+    private int batchSize = 100;
+    private final AtomicLong inserted = new AtomicLong();
+    private final AtomicLong deleted = new AtomicLong();
+
+    /**
+     * inserts a tuple in the Enrolled table for every course of the student
+     *
+     * @param connection connection the statements run on
+     * @param studentId  id of the student
+     * @param courseIds  ids of the courses the student is enrolled to
+     * @throws SQLException if connection to database could not succeed
+     */
+    void insertCourses(Connection connection, long studentId, Collection<Long> courseIds) throws SQLException {
+        this.executeBatched(connection, INSERT_ENROLLED, studentId, courseIds, true);
+        inserted.addAndGet(courseIds.size());
+    }
+
+    /**
+     * inserts a tuple in the Enrolled table for every student of the course
+     *
+     * @param connection connection the statements run on
+     * @param courseId   id of the course
+     * @param studentIds ids of the students enrolled to the course
+     * @throws SQLException if connection to database could not succeed
+     */
+    void insertStudents(Connection connection, long courseId, Collection<Long> studentIds) throws SQLException {
+        this.executeBatched(connection, INSERT_ENROLLED, courseId, studentIds, false);
+        inserted.addAndGet(studentIds.size());
+    }
+
+    /**
+     * inserts the tuples (studentIds[i], courseIds[i]) in the Enrolled table
+     *
+     * @param connection connection the statements run on
+     * @param studentIds ids of the students
+     * @param courseIds  ids of the courses, as many as students
+     * @throws SQLException if connection to database could not succeed
+     */
+    void insertPairs(Connection connection, long[] studentIds, long[] courseIds) throws SQLException {
+        if (studentIds.length == 0)
+            return;
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_ENROLLED)) {
+            int pending = 0;
+            for (int i = 0; i < studentIds.length; i++) {
+                statement.setLong(1, studentIds[i]);
+                statement.setLong(2, courseIds[i]);
+                statement.addBatch();
+                if (++pending == batchSize) {
+                    statement.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0)
+                statement.executeBatch();
+        }
+        inserted.addAndGet(studentIds.length);
+    }
+
+    /**
+     * brings the Enrolled tuples of the student in line with the given courses,
+     * only the missing tuples are inserted and only the ones no longer wanted are deleted
+     *
+     * @param connection connection the statements run on
+     * @param studentId  id of the student
+     * @param courseIds  ids of all the courses the student is enrolled to now
+     * @throws SQLException if connection to database could not succeed
+     */
+    void syncCourses(Connection connection, long studentId, Collection<Long> courseIds) throws SQLException {
+        this.sync(connection, SELECT_COURSE_IDS, studentId, courseIds, true);
+    }
+
+    /**
+     * brings the Enrolled tuples of the course in line with the given students,
+     * only the missing tuples are inserted and only the ones no longer wanted are deleted
+     *
+     * @param connection connection the statements run on
+     * @param courseId   id of the course
+     * @param studentIds ids of all the students enrolled to the course now
+     * @throws SQLException if connection to database could not succeed
+     */
+    void syncStudents(Connection connection, long courseId, Collection<Long> studentIds) throws SQLException {
+        this.sync(connection, SELECT_STUDENT_IDS, courseId, studentIds, false);
+    }
+
+    /**
+     * deletes all the Enrolled tuples of the student with one statement
+     */
+    void deleteAllOfStudent(Connection connection, long studentId) throws SQLException {
+        this.deleteAll(connection, DELETE_FOR_STUDENT, studentId);
+    }
+
+    /**
+     * deletes all the Enrolled tuples of the course with one statement
+     */
+    void deleteAllOfCourse(Connection connection, long courseId) throws SQLException {
+        this.deleteAll(connection, DELETE_FOR_COURSE, courseId);
+    }
+
+    private void deleteAll(Connection connection, String sql, long id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, id);
+            deleted.addAndGet(statement.executeUpdate());
+        }
+    }
+
+    /**
+     * computes the difference between the persisted and the wanted ids and writes only that difference
+     */
+    private void sync(Connection connection, String selectSql, long fixedId, Collection<Long> wantedIds,
+                      boolean fixedIsStudent) throws SQLException {
+        Set<Long> persisted = new HashSet<>();
+        try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+            statement.setLong(1, fixedId);
+            ResultSet resultIds = statement.executeQuery();
+            while (resultIds.next())
+                persisted.add(resultIds.getLong(1));
+        }
+        Set<Long> toInsert = new LinkedHashSet<>(wantedIds);
+        toInsert.removeAll(persisted);
+        persisted.removeAll(wantedIds);
+        // what is left in persisted is no longer wanted
+        this.executeBatched(connection, DELETE_ENROLLED, fixedId, persisted, fixedIsStudent);
+        this.executeBatched(connection, INSERT_ENROLLED, fixedId, toInsert, fixedIsStudent);
+        deleted.addAndGet(persisted.size());
+        inserted.addAndGet(toInsert.size());
+    }
+
+    /**
+     * runs the (studentId, courseId) statement once for every id, sending the rows in batches
+     *
+     * @param fixedId        the id which is the same for all the rows
+     * @param ids            the ids which differ from row to row
+     * @param fixedIsStudent true if fixedId is a studentId, false if it is a courseId
+     */
+    private void executeBatched(Connection connection, String sql, long fixedId, Collection<Long> ids,
+                                boolean fixedIsStudent) throws SQLException {
+        if (ids.isEmpty())
+            return;
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int pending = 0;
+            for (Long id : ids) {
+                statement.setLong(1, fixedIsStudent ? fixedId : id);
+                statement.setLong(2, fixedIsStudent ? id : fixedId);
+                statement.addBatch();
+                if (++pending == batchSize) {
+                    statement.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0)
+                statement.executeBatch();
+        }
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    void setBatchSize(int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be at least 1!");
+        this.batchSize = batchSize;
+    }
+
+    long getInsertedCount() {
+        return inserted.get();
+    }
+
+    long getDeletedCount() {
+        return deleted.get();
+    }
+}
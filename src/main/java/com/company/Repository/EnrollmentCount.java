@@ -0,0 +1,31 @@
+package com.company.Repository;
+
+import com.company.Model.Course;
+
+/**
+ * a course with the number of students enrolled to it, as counted by the database
+ */
+public class EnrollmentCount {
+    private final Course course;
+    private final int enrolled;
+
+    public EnrollmentCount(Course course, int enrolled) {
+        this.course = course;
+        this.enrolled = enrolled;
+    }
+
+    public Course getCourse() {
+        return course;
+    }
+
+    public int getEnrolled() {
+        return enrolled;
+    }
+
+    /**
+     * @return number of students which can still enroll to the course
+     */
+    public int getFreePlaces() {
+        return Math.max(0, course.getMaxEnrollment() - enrolled);
+    }
+}
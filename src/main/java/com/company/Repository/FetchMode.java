@@ -0,0 +1,21 @@
+package com.company.Repository;
+
+/**
+ * how a repository loads the associations of the entities returned by findAll,
+ * findOne always loads the associations lazily
+ */
+public enum FetchMode {
+    /**
+     * one query for the entities and then one more query for the associations of every entity
+     */
+    SELECT,
+    /**
+     * the entities are loaded together with their associations in a single joined query
+     */
+    JOIN,
+    /**
+     * only the entities are loaded, the association of an entity is loaded when it is first used,
+     * together with the associations of the next batchFetchSize entities in a single query
+     */
+    LAZY
+}
@@ -0,0 +1,29 @@
+package com.company.Repository;
+
+import com.company.Model.Course;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * the course repository with the queries which are answered without loading the enrolled students
+ */
+public interface ICourseRepository extends ICrudRepository<Course> {
+    /**
+     * retrieves the courses with fewer enrolled students than their maximum enrollment, in ascending order of the id,
+     * together with the number of their students
+     *
+     * @return the courses with free places
+     * @throws SQLException if connection to database could not succeed
+     */
+    List<EnrollmentCount> findWithFreePlaces() throws SQLException;
+
+    /**
+     * retrieves the ids of the students enrolled to the course from the Enrolled tuples, no student is loaded
+     *
+     * @param courseId id of the course
+     * @return the ids of the enrolled students in ascending order, empty if the course has none or does not exist
+     * @throws SQLException if connection to database could not succeed
+     */
+    long[] findStudentIds(long courseId) throws SQLException;
+}
@@ -4,6 +4,7 @@ import com.company.Exceptions.NullException;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * CRUD operations' repository interface
@@ -27,6 +28,34 @@ public interface ICrudRepository<T> {
      */
     List<T> findAll() throws SQLException;
 
+    /**
+     * retrieves the entities with the smallest ids greater than afterId, in ascending order of the id,
+     * the page is found by seeking the id and not by skipping the entities in front of it
+     *
+     * @param afterId id of the last entity of the previous page or null for the first page
+     * @param limit   maximum number of entities of the page, at least 1
+     * @return the page of entities
+     * @throws SQLException if connection to database could not succeed
+     */
+    Page<T> findPage(Long afterId, int limit) throws SQLException;
+
+    /**
+     * retrieves all entities one after another without holding all of them in memory,
+     * the stream must be closed after use, an SQLException while it is consumed is thrown as an UncheckedSQLException
+     *
+     * @return stream of all entities
+     * @throws SQLException if connection to database could not succeed
+     */
+    Stream<T> streamAll() throws SQLException;
+
+    /**
+     * counts the entities in the repository without loading them
+     *
+     * @return number of entities
+     * @throws SQLException if connection to database could not succeed
+     */
+    long count() throws SQLException;
+
     /**
      * adds an entity in the repository
      *
@@ -0,0 +1,43 @@
+package com.company.Repository;
+
+import com.company.Exceptions.StaleEntityException;
+import com.company.Model.Student;
+
+import java.sql.SQLException;
+
+/**
+ * the student repository with the updates which are run on all students at once
+ */
+public interface IStudentRepository extends ICrudRepository<Student> {
+    /**
+     * sets the total credits of every student to the sum of the credits of his courses,
+     * in one statement instead of one update for each student
+     *
+     * @return number of students whose credits changed
+     * @throws SQLException if connection to database could not succeed
+     */
+    int recomputeCredits() throws SQLException;
+
+    /**
+     * adds delta to the total credits of the students enrolled to the course, in one statement,
+     * for a change of the credits of the course or its removal
+     *
+     * @param courseId id of the course
+     * @param delta    credits to be added, negative to take credits away
+     * @return number of students whose credits changed
+     * @throws SQLException if connection to database could not succeed
+     */
+    int addCredits(long courseId, int delta) throws SQLException;
+
+    /**
+     * enrolls studentIds[i] to courseIds[i] for every i and adds the credits of the course to the student,
+     * the tuples and the credits are written in batches, the caller has checked the enrollments,
+     * the credits are checked once more by the write, so a concurrent enrollment cannot raise a student above 30
+     *
+     * @param studentIds ids of the students
+     * @param courseIds  ids of the courses, as many as students
+     * @throws StaleEntityException if a student would get more than 30 credits, the unit must be run again
+     * @throws SQLException         if connection to database could not succeed or a tuple exists already
+     */
+    void enrollAll(long[] studentIds, long[] courseIds) throws SQLException;
+}
@@ -0,0 +1,89 @@
+package com.company.Repository;
+
+import com.company.Model.Course;
+import com.company.Model.Student;
+import com.company.Model.Teacher;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * the teachers, courses and students created during one load of the repository, by id,
+ * a teacher, course or student met again in another row is not created again but the same instance is returned
+ */
+class IdentityMap {
+    private final Map<Long, Teacher> teachers = new HashMap<>();
+    private final Map<Long, Course> courses = new HashMap<>();
+    private final Map<Long, Student> students = new HashMap<>();
+
+    /**
+     * gives the teacher of the teacherId column of the current row, created only the first time
+     *
+     * @param row             current row
+     * @param firstNameColumn column with the first name of the teacher
+     * @param lastNameColumn  column with the last name of the teacher
+     * @return the single instance of the teacher within this load
+     * @throws SQLException if connection to database could not succeed
+     */
+    Teacher teacher(ResultSet row, String firstNameColumn, String lastNameColumn) throws SQLException {
+        long id = row.getLong("teacherId");
+        Teacher teacher = teachers.get(id);
+        if (teacher == null) {
+            teacher = new Teacher(id, row.getString(firstNameColumn), row.getString(lastNameColumn));
+            teachers.put(id, teacher);
+        }
+        return teacher;
+    }
+
+    /**
+     * gives the course of the courseId column of the current row, created only the first time
+     *
+     * @param row     current row
+     * @param teacher teacher of the course
+     * @return the single instance of the course within this load
+     * @throws SQLException if connection to database could not succeed
+     */
+    Course course(ResultSet row, Teacher teacher) throws SQLException {
+        long id = row.getLong("courseId");
+        Course course = courses.get(id);
+        if (course == null) {
+            course = new Course(id, row.getString("name"), teacher, row.getInt("maxEnrollment"), row.getInt("credits"));
+            course.setVersion(row.getInt("version"));
+            courses.put(id, course);
+        }
+        return course;
+    }
+
+    /**
+     * gives the student of the studentId column of the current row, created only the first time
+     *
+     * @param row             current row
+     * @param firstNameColumn column with the first name of the student
+     * @param lastNameColumn  column with the last name of the student
+     * @param versionColumn   column with the version of the student
+     * @return the single instance of the student within this load
+     * @throws SQLException if connection to database could not succeed
+     */
+    Student student(ResultSet row, String firstNameColumn, String lastNameColumn, String versionColumn)
+            throws SQLException {
+        long id = row.getLong("studentId");
+        Student student = students.get(id);
+        if (student == null) {
+            student = new Student(id, row.getString(firstNameColumn), row.getString(lastNameColumn),
+                    row.getInt("totalCredits"));
+            student.setVersion(row.getInt(versionColumn));
+            students.put(id, student);
+        }
+        return student;
+    }
+
+    /**
+     * forgets the students created so far, a student met again afterwards is created again,
+     * used by a streaming load, which would otherwise keep every student of the stream
+     */
+    void forgetStudents() {
+        students.clear();
+    }
+}
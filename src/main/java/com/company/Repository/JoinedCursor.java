@@ -0,0 +1,143 @@
+package com.company.Repository;
+
+import com.company.Exceptions.UncheckedSQLException;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * reads the entities one after another from the rows of a join ordered by the id of the entity,
+ * only the entity being read is held in memory, so it can walk any number of rows;
+ * a streaming cursor shares the students only within one entity, the teachers and courses within the stream
+ *
+ * @param <T> type of the entities
+ */
+class JoinedCursor<T> implements AutoCloseable {
+    private final ResultSet rows;
+    private final JoinedRowMapper<T> mapper;
+    private final Statement statement;
+    private final Connection connection;
+    private final IdentityMap identities = new IdentityMap();
+    private boolean started;
+    private boolean onRow;
+    // true once the entities are given as a stream, then the students are not kept from one entity to the next
+    private boolean streaming;
+
+    /**
+     * @param rows       rows of the join ordered by the id of the entity
+     * @param mapper     maps the rows to the entities
+     * @param statement  statement of the rows closed together with the cursor, or null if the caller closes it
+     * @param connection connection closed together with the cursor, or null if the caller closes it
+     */
+    JoinedCursor(ResultSet rows, JoinedRowMapper<T> mapper, Statement statement, Connection connection) {
+        this.rows = rows;
+        this.mapper = mapper;
+        this.statement = statement;
+        this.connection = connection;
+    }
+
+    boolean hasNext() throws SQLException {
+        if (!started) {
+            onRow = rows.next();
+            started = true;
+        }
+        return onRow;
+    }
+
+    /**
+     * reads the entity of the current row together with the associations on its following rows
+     *
+     * @return the next entity
+     * @throws SQLException if connection to database could not succeed
+     */
+    T next() throws SQLException {
+        if (!this.hasNext())
+            throw new NoSuchElementException();
+        long id = mapper.id(rows);
+        if (streaming)
+            identities.forgetStudents();
+        T entity = mapper.mapEntity(rows, identities);
+        do {
+            mapper.mapAssociation(entity, rows, identities);
+            onRow = rows.next();
+        } while (onRow && mapper.id(rows) == id);
+        return entity;
+    }
+
+    /**
+     * @return all the remaining entities
+     * @throws SQLException if connection to database could not succeed
+     */
+    List<T> toList() throws SQLException {
+        List<T> entities = new ArrayList<>();
+        while (this.hasNext())
+            entities.add(this.next());
+        return entities;
+    }
+
+    /**
+     * gives the remaining entities as a lazily read stream, closing the stream closes the cursor,
+     * the students of the entities already given are not held, so the memory does not grow with the stream,
+     * an SQLException while the stream is consumed is thrown as an UncheckedSQLException
+     *
+     * @return stream of the entities
+     */
+    Stream<T> stream() {
+        streaming = true;
+        Iterator<T> iterator = new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return JoinedCursor.this.hasNext();
+                } catch (SQLException e) {
+                    throw new UncheckedSQLException(e);
+                }
+            }
+
+            @Override
+            public T next() {
+                try {
+                    return JoinedCursor.this.next();
+                } catch (SQLException e) {
+                    throw new UncheckedSQLException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        this.close();
+                    } catch (SQLException e) {
+                        throw new UncheckedSQLException(e);
+                    }
+                });
+    }
+
+    /**
+     * closes the rows and the statement and the connection given to the cursor
+     *
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public void close() throws SQLException {
+        try {
+            rows.close();
+            if (statement != null)
+                statement.close();
+        } finally {
+            if (connection != null)
+                connection.close();
+        }
+    }
+}
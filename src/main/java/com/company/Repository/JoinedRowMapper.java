@@ -0,0 +1,30 @@
+package com.company.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * maps the rows of a join of an entity with one of its associations,
+ * every row holds the entity and at most one associated entity
+ *
+ * @param <T> type of the entity
+ */
+interface JoinedRowMapper<T> {
+    /**
+     * @return id of the entity of the current row
+     */
+    long id(ResultSet row) throws SQLException;
+
+    /**
+     * @param identities teachers and courses already created by this load
+     * @return new entity from the columns of the current row, with an empty association
+     */
+    T mapEntity(ResultSet row, IdentityMap identities) throws SQLException;
+
+    /**
+     * adds the associated entity of the current row to the entity, if the row has one
+     *
+     * @param identities teachers and courses already created by this load
+     */
+    void mapAssociation(T entity, ResultSet row, IdentityMap identities) throws SQLException;
+}
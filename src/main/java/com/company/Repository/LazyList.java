@@ -0,0 +1,105 @@
+package com.company.Repository;
+
+import com.company.Exceptions.UncheckedSQLException;
+
+import java.sql.SQLException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * list of the associated entities of an entity, loaded from the database the first time it is used
+ *
+ * @param <E> type of the associated entities
+ */
+public class LazyList<E> extends AbstractList<E> {
+    private final long ownerId;
+    private final BatchFetcher<?, E> fetcher;
+    // the list this one is a copy of, or null
+    private final List<E> source;
+    private volatile List<E> elements;
+
+    LazyList(long ownerId, BatchFetcher<?, E> fetcher) {
+        this.ownerId = ownerId;
+        this.fetcher = fetcher;
+        this.source = null;
+    }
+
+    /**
+     * copy of the given list, made the first time it is used, so a lazy source is not loaded before
+     */
+    private LazyList(List<E> source) {
+        this.ownerId = source instanceof LazyList ? ((LazyList<E>) source).ownerId : -1;
+        this.fetcher = null;
+        this.source = source;
+    }
+
+    /**
+     * @return a list the caller may change without changing the given one, or null if it is null
+     */
+    static <E> List<E> copyOf(List<E> list) {
+        return list == null ? null : new LazyList<>(list);
+    }
+
+    long getOwnerId() {
+        return ownerId;
+    }
+
+    boolean isLoaded() {
+        return elements != null || (source != null && isLoaded(source));
+    }
+
+    /**
+     * called by the fetcher with the loaded entities
+     */
+    void fill(List<E> loaded) {
+        this.elements = loaded;
+    }
+
+    /**
+     * @return true if the list was loaded or is not a LazyList, so it may differ from the database
+     */
+    public static boolean isLoaded(List<?> list) {
+        return !(list instanceof LazyList) || ((LazyList<?>) list).isLoaded();
+    }
+
+    private List<E> elements() {
+        if (elements == null && source != null)
+            elements = new ArrayList<>(source);
+        if (elements == null) {
+            try {
+                fetcher.load(this);
+            } catch (SQLException e) {
+                throw new UncheckedSQLException(e);
+            }
+        }
+        return elements;
+    }
+
+    @Override
+    public E get(int index) {
+        return this.elements().get(index);
+    }
+
+    @Override
+    public int size() {
+        return this.elements().size();
+    }
+
+    @Override
+    public E set(int index, E element) {
+        return this.elements().set(index, element);
+    }
+
+    @Override
+    public void add(int index, E element) {
+        this.elements().add(index, element);
+        modCount++;
+    }
+
+    @Override
+    public E remove(int index) {
+        modCount++;
+        return this.elements().remove(index);
+    }
+}
@@ -0,0 +1,86 @@
+package com.company.Repository;
+
+import com.company.Database.InMemoryDatabase;
+import com.company.Exceptions.NullException;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * the reads shared by the repositories of the in-memory database, the entities come in ascending order of the id
+ * like from the JDBC repositories
+ *
+ * @param <T> type of the entities
+ */
+abstract class MemoryRepository<T> implements ICrudRepository<T> {
+    protected final InMemoryDatabase database;
+
+    MemoryRepository(InMemoryDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * @return ids of all the entities in ascending order
+     */
+    protected abstract long[] ids();
+
+    /**
+     * builds the entity with its associations, the caller holds the lock of the database
+     *
+     * @return the entity or null if there is no entity with the given id
+     */
+    protected abstract T load(long id);
+
+    @Override
+    public T findOne(Long id) throws NullException, SQLException {
+        if (id == null)
+            throw new NullException("Null id!");
+        return database.read(() -> this.load(id));
+    }
+
+    @Override
+    public List<T> findAll() throws SQLException {
+        return database.read(() -> {
+            List<T> entities = new ArrayList<>();
+            for (long id : this.ids())
+                entities.add(this.load(id));
+            return entities;
+        });
+    }
+
+    @Override
+    public Page<T> findPage(Long afterId, int limit) throws SQLException {
+        if (limit < 1)
+            throw new IllegalArgumentException("Page limit must be at least 1!");
+        return database.read(() -> {
+            long[] ids = this.ids();
+            int from = 0;
+            if (afterId != null) {
+                // the position of the first id greater than afterId
+                int found = Arrays.binarySearch(ids, afterId);
+                from = found >= 0 ? found + 1 : -found - 1;
+            }
+            int to = Math.min(ids.length, from + limit);
+            List<T> entities = new ArrayList<>();
+            for (int i = from; i < to; i++)
+                entities.add(this.load(ids[i]));
+            return new Page<>(entities, to < ids.length ? ids[to - 1] : null);
+        });
+    }
+
+    /**
+     * streams the entities which exist when the stream is created, each one is built when it is reached
+     */
+    @Override
+    public Stream<T> streamAll() throws SQLException {
+        long[] ids = database.read(this::ids);
+        return Arrays.stream(ids)
+                .mapToObj(id -> database.read(() -> this.load(id)))
+                // entities deleted in the meantime are skipped
+                .filter(Objects::nonNull);
+    }
+}
@@ -0,0 +1,37 @@
+package com.company.Repository;
+
+import java.util.List;
+
+/**
+ * one page of entities ordered by id, as given by ICrudRepository.findPage
+ *
+ * @param <T> type of the entities
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final Long nextAfterId;
+
+    /**
+     * @param items       entities of the page
+     * @param nextAfterId id to give to findPage for the next page, null if this is the last page
+     */
+    public Page(List<T> items, Long nextAfterId) {
+        this.items = items;
+        this.nextAfterId = nextAfterId;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public Long getNextAfterId() {
+        return nextAfterId;
+    }
+
+    /**
+     * @return true if there are more entities after this page
+     */
+    public boolean hasNext() {
+        return nextAfterId != null;
+    }
+}
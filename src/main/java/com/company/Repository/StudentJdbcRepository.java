@@ -1,32 +1,105 @@
 package com.company.Repository;
 
 import com.company.Exceptions.NullException;
+import com.company.Exceptions.StaleEntityException;
 import com.company.Model.Course;
 import com.company.Model.Student;
 import com.company.Model.Teacher;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
- * StudentJdbcRepository implementing ICrudRepository<Student>
+ * StudentJdbcRepository implementing IStudentRepository
  */
-public class StudentJdbcRepository implements ICrudRepository<Student> {
-    private String dbUrl;
-    private String user;
-    private String password;
-    private Connection connection;
+public class StudentJdbcRepository implements IStudentRepository {
+    private static final String SELECT_STUDENT = "SELECT studentId, firstName, lastName, totalCredits, version FROM Students " +
+            "WHERE studentId = ?";
+    private static final String SELECT_STUDENTS = "SELECT studentId, firstName, lastName, totalCredits, version FROM Students";
+    private static final String SELECT_ENROLLED = "SELECT c.courseId, c.name, c.credits, c.maxEnrollment, c.version, t.teacherId, t.firstName, t.lastName " +
+            "FROM Enrolled e inner join Courses c on c.courseId = e.courseId " +
+            "inner join Teachers t on t.teacherId = c.teacherId " +
+            "where e.studentId = ?";
+    private static final String SELECT_ENROLLED_IN = "SELECT e.studentId, c.courseId, c.name, c.credits, c.maxEnrollment, c.version, t.teacherId, t.firstName, t.lastName " +
+            "FROM Enrolled e inner join Courses c on c.courseId = e.courseId " +
+            "inner join Teachers t on t.teacherId = c.teacherId " +
+            "where e.studentId in ";
+    private static final String JOINED_COLUMNS = "SELECT s.studentId, s.firstName AS studentFirstName, s.lastName AS studentLastName, s.totalCredits, s.version AS studentVersion, " +
+            "c.courseId, c.name, c.credits, c.maxEnrollment, c.version, t.teacherId, t.firstName, t.lastName ";
+    private static final String JOINED_COURSES = "left outer join (Enrolled e inner join Courses c on c.courseId = e.courseId " +
+            "inner join Teachers t on t.teacherId = c.teacherId) on e.studentId = s.studentId " +
+            "order by s.studentId";
+    private static final String SELECT_JOINED = JOINED_COLUMNS + "FROM Students s " + JOINED_COURSES;
+    // the derived table seeks the page on the primary key, then the courses of the page are joined to it
+    private static final String SELECT_PAGE = JOINED_COLUMNS +
+            "FROM (SELECT studentId, firstName, lastName, totalCredits, version FROM Students " +
+            "WHERE studentId > ? order by studentId LIMIT ?) s " + JOINED_COURSES;
+    private static final String COUNT_STUDENTS = "SELECT COUNT(*) FROM Students";
+    private static final String INSERT_STUDENT = "INSERT INTO Students (studentId, firstName, lastName, totalCredits) values (?, ?, ?, ?)";
+    private static final String UPDATE_STUDENT = "UPDATE Students set firstName = ?, lastName = ?, totalCredits = ?, version = version + 1 " +
+            "where studentId = ? and version = ?";
+    // the sums of all students are grouped in one pass over Enrolled, only the rows which change are written
+    private static final String RECOMPUTE_CREDITS = "UPDATE Students s left outer join " +
+            "(SELECT e.studentId, SUM(c.credits) AS credits FROM Enrolled e inner join Courses c on c.courseId = e.courseId " +
+            "GROUP BY e.studentId) sums on sums.studentId = s.studentId " +
+            "set s.totalCredits = COALESCE(sums.credits, 0), s.version = s.version + 1 where s.totalCredits <> COALESCE(sums.credits, 0)";
+    // only the students of the roster are written, found on the index of the courseId foreign key of Enrolled
+    private static final String ADD_CREDITS = "UPDATE Students s inner join Enrolled e on e.studentId = s.studentId " +
+            "set s.totalCredits = s.totalCredits + ?, s.version = s.version + 1 where e.courseId = ?";
+    // not version checked, a student may get several courses of one batch, but never more than 30 credits
+    private static final String ADD_COURSE_CREDITS = "UPDATE Students set totalCredits = totalCredits + " +
+            "(SELECT credits FROM Courses WHERE courseId = ?), version = version + 1 where studentId = ? " +
+            "and totalCredits + (SELECT credits FROM Courses WHERE courseId = ?) <= 30";
+    private static final String SELECT_STUDENT_ROW = "SELECT * FROM Students WHERE studentId = ?";
 
-    public StudentJdbcRepository() throws SQLException {
-        this.dbUrl = "jdbc:mysql://localhost/maplab5";
-        this.user = "victor";
-        this.password = "victorgugugaga";
-        this.connection = DriverManager.getConnection(dbUrl, user, password);
+    // maps the rows of SELECT_ENROLLED and SELECT_ENROLLED_IN
+    private static final AssociationMapper<Student, Course> COURSE_ROWS = (row, student, identities) ->
+            identities.course(row, identities.teacher(row, "firstName", "lastName"));
+
+    // maps the rows of SELECT_JOINED and SELECT_PAGE, a student without courses has a single row with null course columns
+    private static final JoinedRowMapper<Student> JOINED_ROWS = new JoinedRowMapper<Student>() {
+        @Override
+        public long id(ResultSet row) throws SQLException {
+            return row.getLong("studentId");
+        }
+
+        @Override
+        public Student mapEntity(ResultSet row, IdentityMap identities) throws SQLException {
+            Student student = new Student(row.getLong("studentId"),
+                    row.getString("studentFirstName"),
+                    row.getString("studentLastName"),
+                    row.getInt("totalCredits"));
+            student.setVersion(row.getInt("studentVersion"));
+            student.setEnrolledCourses(new ArrayList<>());
+            return student;
+        }
+
+        @Override
+        public void mapAssociation(Student student, ResultSet row, IdentityMap identities) throws SQLException {
+            row.getLong("courseId");
+            if (row.wasNull())
+                return;
+            // all the students of a course share the same Course and Teacher instances
+            student.getEnrolledCourses().add(COURSE_ROWS.map(row, student, identities));
+        }
+    };
+
+    private final DataSource dataSource;
+    private FetchMode fetchMode = FetchMode.JOIN;
+    private int fetchSize = 500;
+    private int batchFetchSize = 25;
+    private final EnrolledWriter enrolledWriter = new EnrolledWriter();
+
+    public StudentJdbcRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
 
     /**
-     * Querying the Courses, Teachers, Students and Enrolled tables in the database to find the student and the courses he is enrolled to and the teachers
+     * Querying the Students table in the database to find the student, the courses he is enrolled to
+     * are loaded from the Enrolled, Courses and Teachers tables the first time they are used
      *
      * @param id -the id of the entity to be returned id must not be null
      * @return the entity with the specified id or null
@@ -36,85 +109,344 @@ public class StudentJdbcRepository implements ICrudRepository<Student> {
     @Override
     public Student findOne(Long id) throws SQLException, NullException {
         Student newStudent;
-        List<Course> enrolledCourses = new ArrayList<>();
         if (id == null) {
             throw new NullException("Null id!");
         }
-        String queryStudent = "SELECT studentId, firstName, lastName,totalCredits FROM Students " +
-                "WHERE studentId = '" + id + "'";
-        String queryEnrolled = "SELECT c.courseId, c.name, c.credits, c.maxEnrollment, t.teacherId, t.firstName, t.lastName " +
-                "FROM Enrolled e inner join Courses c on c.courseId = e.courseId " +
-                "inner join Teachers t on t.teacherId = c.teacherId " +
-                "where e.studentId = '" + id + "'";
-        Statement statement = connection.createStatement();
-        ResultSet resultStudent = statement.executeQuery(queryStudent);
-        // if student was found
-        if (resultStudent.next()) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_STUDENT)) {
+            statement.setLong(1, id);
+            ResultSet resultStudent = statement.executeQuery();
+            // if student was found
+            if (!resultStudent.next())
+                return null;
             newStudent = new Student(resultStudent.getLong("studentId"),
                     resultStudent.getString("firstName"),
                     resultStudent.getString("lastName"),
                     resultStudent.getInt("totalCredits"));
-            Statement statement2 = connection.createStatement();
-            ResultSet resultEnrolled = statement2.executeQuery(queryEnrolled);
-            // finds the courses the given student is enrolled to
-            while (resultEnrolled.next()) {
-                Course course = new Course(resultEnrolled.getLong("courseId"),
-                        resultEnrolled.getString("name"),
-                        new Teacher(resultEnrolled.getLong("teacherId"),
-                                resultEnrolled.getString("firstName"),
-                                resultEnrolled.getString("lastName")),
-                        resultEnrolled.getInt("maxEnrollment"),
-                        resultEnrolled.getInt("credits"));
-                enrolledCourses.add(course);
-            }
-            newStudent.setEnrolledCourses(enrolledCourses);
-            return newStudent;
-        } else
-            return null;
+            newStudent.setVersion(resultStudent.getInt("version"));
+        }
+        // a login or an existence check never touches the courses, so they are not loaded up front
+        newStudent.setEnrolledCourses(new BatchFetcher<>(dataSource, SELECT_ENROLLED_IN, COURSE_ROWS, 1, new IdentityMap())
+                .lazyList(newStudent, id));
+        return newStudent;
+    }
+
+    /**
+     * finds the courses the given student is enrolled to
+     *
+     * @param connection connection the query runs on
+     * @param id         id of the student
+     * @param identities teachers and courses already created by this load
+     * @return courses of the student
+     * @throws SQLException if connection to database could not succeed
+     */
+    private List<Course> findEnrolledCourses(Connection connection, long id, IdentityMap identities) throws SQLException {
+        List<Course> enrolledCourses = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_ENROLLED)) {
+            statement.setLong(1, id);
+            ResultSet resultEnrolled = statement.executeQuery();
+            while (resultEnrolled.next())
+                enrolledCourses.add(COURSE_ROWS.map(resultEnrolled, null, identities));
+        }
+        return enrolledCourses;
     }
 
     /**
      * Querying the Courses, Teachers, Students and Enrolled tables in the database to find all the students and the courses he is enrolled to and the teachers
      *
-     * @return if connection to database could not succeed
+     * @return list with all students
      * @throws SQLException if connection to database could not succeed
      */
     @Override
     public List<Student> findAll() throws SQLException {
-        List<Student> students = new ArrayList<>();
-        Student newStudent = null;
-        long id;
-        String queryStudent = "SELECT studentId, firstName, lastName,totalCredits FROM Students ";
-        Statement statement = connection.createStatement();
-        ResultSet resultStudent = statement.executeQuery(queryStudent);
-        while (resultStudent.next()) {
-            newStudent = new Student(resultStudent.getLong("studentId"),
-                    resultStudent.getString("firstName"),
-                    resultStudent.getString("lastName"),
-                    resultStudent.getInt("totalCredits"));
-            id = resultStudent.getLong("studentId");
-            String queryEnrolled = "SELECT c.courseId, c.name, c.credits, c.maxEnrollment, t.teacherId, t.firstName, t.lastName " +
-                    "FROM Enrolled e inner join Courses c on c.courseId = e.courseId " +
-                    "inner join Teachers t on t.teacherId = c.teacherId " +
-                    "where e.studentId = '" + id + "'";
-            Statement statement2 = connection.createStatement();
-            ResultSet resultEnrolled = statement2.executeQuery(queryEnrolled);
-            // finds the courses the current student is enrolled to
-            List<Course> enrolledCourses = new ArrayList<>();
-            while (resultEnrolled.next()) {
-                Course course = new Course(resultEnrolled.getLong("courseId"),
-                        resultEnrolled.getString("name"),
-                        new Teacher(resultEnrolled.getLong("teacherId"),
-                                resultEnrolled.getString("firstName"),
-                                resultEnrolled.getString("lastName")),
-                        resultEnrolled.getInt("maxEnrollment"),
-                        resultEnrolled.getInt("credits"));
-                enrolledCourses.add(course);
+        switch (fetchMode) {
+            case JOIN:
+                return this.findAllJoined();
+            case LAZY:
+                return this.findAllLazy();
+            default:
+                return this.findAllBySelect();
+        }
+    }
+
+    /**
+     * loads the students only, the courses of the students are loaded when first used,
+     * batchFetchSize students at a time
+     *
+     * @return list with all students
+     * @throws SQLException if connection to database could not succeed
+     */
+    private List<Student> findAllLazy() throws SQLException {
+        BatchFetcher<Student, Course> fetcher = new BatchFetcher<>(dataSource, SELECT_ENROLLED_IN, COURSE_ROWS, batchFetchSize,
+                new IdentityMap());
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_STUDENTS)) {
+            List<Student> students = new ArrayList<>();
+            ResultSet resultStudent = statement.executeQuery();
+            while (resultStudent.next()) {
+                Student newStudent = new Student(resultStudent.getLong("studentId"),
+                        resultStudent.getString("firstName"),
+                        resultStudent.getString("lastName"),
+                        resultStudent.getInt("totalCredits"));
+                newStudent.setVersion(resultStudent.getInt("version"));
+                newStudent.setEnrolledCourses(fetcher.lazyList(newStudent, newStudent.getStudentId()));
+                students.add(newStudent);
+            }
+            return students;
+        }
+    }
+
+    /**
+     * loads the students and, with one more query for each student, the courses he is enrolled to
+     *
+     * @return list with all students
+     * @throws SQLException if connection to database could not succeed
+     */
+    private List<Student> findAllBySelect() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            List<Student> students = new ArrayList<>();
+            IdentityMap identities = new IdentityMap();
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_STUDENTS)) {
+                ResultSet resultStudent = statement.executeQuery();
+                while (resultStudent.next()) {
+                    Student newStudent = new Student(resultStudent.getLong("studentId"),
+                            resultStudent.getString("firstName"),
+                            resultStudent.getString("lastName"),
+                            resultStudent.getInt("totalCredits"));
+                    newStudent.setVersion(resultStudent.getInt("version"));
+                    // finds the courses the current student is enrolled to
+                    newStudent.setEnrolledCourses(this.findEnrolledCourses(connection, newStudent.getStudentId(), identities));
+                    students.add(newStudent);
+                }
+            }
+            return students;
+        }
+    }
+
+    /**
+     * loads the students together with their courses and the teachers of the courses in a single query,
+     * the rows are ordered by studentId so all the rows of a student come one after another
+     *
+     * @return list with all students
+     * @throws SQLException if connection to database could not succeed
+     */
+    private List<Student> findAllJoined() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_JOINED)) {
+            return this.readJoined(statement.executeQuery());
+        }
+    }
+
+    /**
+     * loads one page of students together with their courses in a single query
+     *
+     * @param afterId id of the last student of the previous page or null for the first page
+     * @param limit   maximum number of students of the page, at least 1
+     * @return the page of students
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public Page<Student> findPage(Long afterId, int limit) throws SQLException {
+        if (limit < 1)
+            throw new IllegalArgumentException("Page limit must be at least 1!");
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_PAGE)) {
+            statement.setLong(1, afterId == null ? Long.MIN_VALUE : afterId);
+            // one more student than asked tells if there is a next page
+            statement.setInt(2, limit + 1);
+            List<Student> students = this.readJoined(statement.executeQuery());
+            if (students.size() <= limit)
+                return new Page<>(students, null);
+            students.remove(limit);
+            return new Page<>(students, students.get(limit - 1).getStudentId());
+        }
+    }
+
+    /**
+     * streams the students together with their courses from a forward-only cursor, which fetches fetchSize rows at a time,
+     * so only the rows of one fetch are held in memory; the stream holds a connection until it is closed
+     *
+     * @return stream of all students, to be closed after use
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public Stream<Student> streamAll() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            PreparedStatement statement = connection.prepareStatement(SELECT_JOINED,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return new JoinedCursor<>(statement.executeQuery(), JOINED_ROWS, statement, connection).stream();
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * builds the students from the rows of a join ordered by studentId
+     *
+     * @param resultJoined rows of the join
+     * @return list with the students of the rows
+     * @throws SQLException if connection to database could not succeed
+     */
+    private List<Student> readJoined(ResultSet resultJoined) throws SQLException {
+        return new JoinedCursor<>(resultJoined, JOINED_ROWS, null, null).toList();
+    }
+
+    /**
+     * counts the tuples in the Students table without loading the students
+     *
+     * @return number of students
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public long count() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(COUNT_STUDENTS)) {
+            ResultSet resultCount = statement.executeQuery();
+            resultCount.next();
+            return resultCount.getLong(1);
+        }
+    }
+
+    /**
+     * recomputes the total credits of all students with a single UPDATE in the database
+     *
+     * @return number of students whose credits changed
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public int recomputeCredits() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(RECOMPUTE_CREDITS)) {
+            return statement.executeUpdate();
+        }
+    }
+
+    /**
+     * adds the credits to the students enrolled to the course with a single UPDATE in the database
+     *
+     * @param courseId id of the course
+     * @param delta    credits to be added
+     * @return number of students whose credits changed
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public int addCredits(long courseId, int delta) throws SQLException {
+        if (delta == 0)
+            return 0;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(ADD_CREDITS)) {
+            statement.setInt(1, delta);
+            statement.setLong(2, courseId);
+            return statement.executeUpdate();
+        }
+    }
+
+    /**
+     * inserts the Enrolled tuples and adds the credits of the courses to the students, both in JDBC batches,
+     * a student whose credits were raised by another writer since the caller checked them is not updated
+     *
+     * @param studentIds ids of the students
+     * @param courseIds  ids of the courses, as many as students
+     * @throws StaleEntityException if a student does not exist anymore or would get more than 30 credits
+     * @throws SQLException         if connection to database could not succeed or a tuple exists already
+     */
+    @Override
+    public void enrollAll(long[] studentIds, long[] courseIds) throws SQLException {
+        if (studentIds.length != courseIds.length)
+            throw new IllegalArgumentException("As many students as courses are needed!");
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement creditsStmt = connection.prepareStatement(ADD_COURSE_CREDITS)) {
+            enrolledWriter.insertPairs(connection, studentIds, courseIds);
+            int pending = 0;
+            for (int i = 0; i < studentIds.length; i++) {
+                creditsStmt.setLong(1, courseIds[i]);
+                creditsStmt.setLong(2, studentIds[i]);
+                creditsStmt.setLong(3, courseIds[i]);
+                creditsStmt.addBatch();
+                if (++pending == enrolledWriter.getBatchSize()) {
+                    checkCredited(creditsStmt.executeBatch(), studentIds, i + 1 - pending);
+                    pending = 0;
+                }
             }
-            newStudent.setEnrolledCourses(enrolledCourses);
-            students.add(newStudent);
+            if (pending > 0)
+                checkCredited(creditsStmt.executeBatch(), studentIds, studentIds.length - pending);
+        }
+    }
+
+    /**
+     * @param counts update counts of a batch of ADD_COURSE_CREDITS
+     * @param first  index in studentIds of the first statement of the batch
+     * @throws StaleEntityException if a statement updated no student, the unit must be rolled back
+     */
+    private static void checkCredited(int[] counts, long[] studentIds, int first) throws StaleEntityException {
+        for (int i = 0; i < counts.length; i++) {
+            // SUCCESS_NO_INFO is negative, a driver giving it cannot be checked
+            if (counts[i] == 0)
+                throw new StaleEntityException("Student " + studentIds[first + i]
+                        + " was changed by another writer or would exceed 30 credits!");
         }
-        return students;
+    }
+
+    public int getBatchSize() {
+        return enrolledWriter.getBatchSize();
+    }
+
+    /**
+     * @param batchSize number of Enrolled tuples sent to the database in one batch
+     */
+    public void setBatchSize(int batchSize) {
+        enrolledWriter.setBatchSize(batchSize);
+    }
+
+    /**
+     * @return number of Enrolled tuples inserted by this repository
+     */
+    public long getEnrolledInserts() {
+        return enrolledWriter.getInsertedCount();
+    }
+
+    /**
+     * @return number of Enrolled tuples deleted by this repository
+     */
+    public long getEnrolledDeletes() {
+        return enrolledWriter.getDeletedCount();
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * @param fetchSize number of rows fetched at a time by the cursor of streamAll
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 1)
+            throw new IllegalArgumentException("Fetch size must be at least 1!");
+        this.fetchSize = fetchSize;
+    }
+
+    public int getBatchFetchSize() {
+        return batchFetchSize;
+    }
+
+    /**
+     * @param batchFetchSize number of lazy associations loaded together in the LAZY fetch mode
+     */
+    public void setBatchFetchSize(int batchFetchSize) {
+        if (batchFetchSize < 1)
+            throw new IllegalArgumentException("Batch fetch size must be at least 1!");
+        this.batchFetchSize = batchFetchSize;
+    }
+
+    public FetchMode getFetchMode() {
+        return fetchMode;
+    }
+
+    public void setFetchMode(FetchMode fetchMode) {
+        this.fetchMode = fetchMode;
     }
 
     /**
@@ -134,20 +466,17 @@ public class StudentJdbcRepository implements ICrudRepository<Student> {
         if (existingStudent != null) {
             return existingStudent;
         } else {
-            String insertStudent = "INSERT INTO Students (studentId, firstName, lastName, totalCredits) values ('" + obj.getStudentId() + "', '"
-                    + obj.getFirstName() + "', '"
-                    + obj.getLastName() + "', '"
-                    + obj.getTotalCredits() + "')";
-            Statement insertStmt = connection.createStatement();
-            insertStmt.executeUpdate(insertStudent);
-            // inserts the Enrolled tuples with the courses the given student is enrolled to
-            for (Course c : obj.getEnrolledCourses()) {
-                String insertEnroll = "INSERT INTO Enrolled (studentId, courseId) values ('" + obj.getStudentId() + "', '"
-                        + c.getCourseId() + "')";
-                Statement enrollStmt = connection.createStatement();
-                enrollStmt.executeUpdate(insertEnroll);
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement insertStmt = connection.prepareStatement(INSERT_STUDENT)) {
+                insertStmt.setLong(1, obj.getStudentId());
+                insertStmt.setString(2, obj.getFirstName());
+                insertStmt.setString(3, obj.getLastName());
+                insertStmt.setInt(4, obj.getTotalCredits());
+                insertStmt.executeUpdate();
+                // inserts the Enrolled tuples with the courses the given student is enrolled to
+                enrolledWriter.insertCourses(connection, obj.getStudentId(), this.courseIds(obj));
+                return null;
             }
-            return null;
         }
     }
 
@@ -157,6 +486,7 @@ public class StudentJdbcRepository implements ICrudRepository<Student> {
      *
      * @param obj entity must not be null
      * @return null if the entity is updated, otherwise returns the entity
+     * @throws StaleEntityException if the row was changed by another writer since the entity was read
      * @throws SQLException  if connection to database could not succeed
      * @throws NullException if input parameter entity obj is NULL
      */
@@ -164,30 +494,24 @@ public class StudentJdbcRepository implements ICrudRepository<Student> {
     public Student update(Student obj) throws SQLException, NullException {
         if (obj == null)
             throw new NullException("Null Object");
-        Student existingStudent = this.findOne(obj.getStudentId());
-        if (existingStudent == null) {
-            return obj;
-        } else {
-            String updateSql = "UPDATE Students set firstName ='" + obj.getFirstName() + "', lastName = '"
-                    + obj.getLastName() + "', totalCredits = '" + obj.getTotalCredits() + "'where studentId = '"
-                    + obj.getStudentId() + "'";
-            Statement updateStmt = connection.createStatement();
-            updateStmt.executeUpdate(updateSql);
-            String deleteEnrolled = "SELECT *" +
-                    "FROM Enrolled e " +
-                    "where e.studentId = '" + obj.getStudentId() + "'";
-            Statement statement2 = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_UPDATABLE);
-            ResultSet resultEnrolled = statement2.executeQuery(deleteEnrolled);
-            while (resultEnrolled.next()) {
-                resultEnrolled.deleteRow();
-            }
-            // adds again the current Enrolled tuples with the courses the given student is enrolled to
-            for (Course c : obj.getEnrolledCourses()) {
-                String insertEnroll = "INSERT INTO Enrolled (studentId, courseId) values ('" + obj.getStudentId() + "', '"
-                        + c.getCourseId() + "')";
-                Statement enrollStmt = connection.createStatement();
-                enrollStmt.executeUpdate(insertEnroll);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement updateStmt = connection.prepareStatement(UPDATE_STUDENT)) {
+            updateStmt.setString(1, obj.getFirstName());
+            updateStmt.setString(2, obj.getLastName());
+            updateStmt.setInt(3, obj.getTotalCredits());
+            updateStmt.setLong(4, obj.getStudentId());
+            updateStmt.setInt(5, obj.getVersion());
+            // no matched row means there is no student with this id or its row was written since the student was read
+            if (updateStmt.executeUpdate() == 0) {
+                if (this.exists(connection, obj.getStudentId()))
+                    throw new StaleEntityException("Student " + obj.getStudentId() + " was changed by another writer!");
+                return obj;
             }
+            obj.setVersion(obj.getVersion() + 1);
+            // writes only the Enrolled tuples which changed since the student was loaded,
+            // courses which were never loaded can not have changed
+            if (LazyList.isLoaded(obj.getEnrolledCourses()))
+                enrolledWriter.syncCourses(connection, obj.getStudentId(), this.courseIds(obj));
             return null;
         }
     }
@@ -204,27 +528,43 @@ public class StudentJdbcRepository implements ICrudRepository<Student> {
     public Student delete(Long id) throws SQLException, NullException {
         if (id == null)
             throw new NullException("Null id");
-        Student student = null;
-        String selectAll = "SELECT * FROM Students " +
-                "WHERE studentId = '" + id + "'";
-        Statement deleteStmt = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_UPDATABLE);
-        ResultSet deleteResultSet = deleteStmt.executeQuery(selectAll);
-        // checks if the student exists in the database
-        if (deleteResultSet.next()) {
-            student = new Student(deleteResultSet.getLong("studentId"),
-                    deleteResultSet.getString("firstName"),
-                    deleteResultSet.getString("lastName"),
-                    deleteResultSet.getInt("totalCredits"));
-            String queryEnrolled = "SELECT *" +
-                    "FROM Enrolled e " +
-                    "where e.studentId = '" + id + "'";
-            Statement statement2 = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_UPDATABLE);
-            ResultSet resultEnrolled = statement2.executeQuery(queryEnrolled);
-            while (resultEnrolled.next()) {
-                resultEnrolled.deleteRow();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement deleteStmt = connection.prepareStatement(SELECT_STUDENT_ROW,
+                     ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_UPDATABLE)) {
+            Student student = null;
+            deleteStmt.setLong(1, id);
+            ResultSet deleteResultSet = deleteStmt.executeQuery();
+            // checks if the student exists in the database
+            if (deleteResultSet.next()) {
+                student = new Student(deleteResultSet.getLong("studentId"),
+                        deleteResultSet.getString("firstName"),
+                        deleteResultSet.getString("lastName"),
+                        deleteResultSet.getInt("totalCredits"));
+                // deletes all Enrolled tuples of the given student
+                enrolledWriter.deleteAllOfStudent(connection, id);
+                deleteResultSet.deleteRow();
             }
-            deleteResultSet.deleteRow();
+            return student;
+        }
+    }
+
+    /**
+     * @return ids of the courses the student is enrolled to
+     */
+    private List<Long> courseIds(Student obj) {
+        List<Long> ids = new ArrayList<>();
+        for (Course c : obj.getEnrolledCourses())
+            ids.add(c.getCourseId());
+        return ids;
+    }
+
+    /**
+     * @return true if there is a student with the given id
+     */
+    private boolean exists(Connection connection, long id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_STUDENT_ROW)) {
+            statement.setLong(1, id);
+            return statement.executeQuery().next();
         }
-        return student;
     }
 }
@@ -0,0 +1,175 @@
+package com.company.Repository;
+
+import com.company.Database.InMemoryDatabase;
+import com.company.Exceptions.NullException;
+import com.company.Exceptions.StaleEntityException;
+import com.company.Model.Course;
+import com.company.Model.Student;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+
+/**
+ * StudentMemoryRepository implementing IStudentRepository on the in-memory database
+ */
+public class StudentMemoryRepository extends MemoryRepository<Student> implements IStudentRepository {
+    public StudentMemoryRepository(InMemoryDatabase database) {
+        super(database);
+    }
+
+    @Override
+    protected long[] ids() {
+        return database.studentIds();
+    }
+
+    /**
+     * builds the student with the courses he is enrolled to
+     */
+    @Override
+    protected Student load(long id) {
+        Student student = database.student(id);
+        if (student == null)
+            return null;
+        for (long courseId : database.coursesOfStudent(id))
+            student.getEnrolledCourses().add(database.course(courseId));
+        return student;
+    }
+
+    @Override
+    public long count() {
+        return database.read(database::studentCount);
+    }
+
+    /**
+     * sums the credits on the enrollment sets in one unit, only the students whose credits change are written
+     */
+    @Override
+    public int recomputeCredits() throws SQLException {
+        return database.write(() -> {
+            int changed = 0;
+            for (long id : database.studentIds()) {
+                int credits = 0;
+                for (long courseId : database.coursesOfStudent(id))
+                    credits += database.course(courseId).getCredits();
+                Student student = database.student(id);
+                if (student.getTotalCredits() != credits) {
+                    student.setTotalCredits(credits);
+                    database.putStudent(student);
+                    changed++;
+                }
+            }
+            return changed;
+        });
+    }
+
+    /**
+     * adds the credits to the students of the course in one unit
+     */
+    @Override
+    public int addCredits(long courseId, int delta) throws SQLException {
+        if (delta == 0)
+            return 0;
+        return database.write(() -> {
+            long[] students = database.studentsOfCourse(courseId);
+            for (long id : students) {
+                Student student = database.student(id);
+                student.setTotalCredits(student.getTotalCredits() + delta);
+                database.putStudent(student);
+            }
+            return students.length;
+        });
+    }
+
+    /**
+     * inserts the Enrolled tuples and adds the credits in one unit, like the JDBC repository it refuses
+     * to raise a student above 30 credits
+     */
+    @Override
+    public void enrollAll(long[] studentIds, long[] courseIds) throws SQLException {
+        if (studentIds.length != courseIds.length)
+            throw new IllegalArgumentException("As many students as courses are needed!");
+        database.write(() -> {
+            for (int i = 0; i < studentIds.length; i++) {
+                Student student = database.student(studentIds[i]);
+                Course course = database.course(courseIds[i]);
+                if (student == null || course == null)
+                    throw new SQLIntegrityConstraintViolationException("Student " + studentIds[i] + " or course "
+                            + courseIds[i] + " does not exist!");
+                if (database.isEnrolled(studentIds[i], courseIds[i]))
+                    throw new SQLIntegrityConstraintViolationException("Student " + studentIds[i]
+                            + " is enrolled to course " + courseIds[i] + " already!");
+                if (student.getTotalCredits() + course.getCredits() > 30)
+                    throw new StaleEntityException("Student " + studentIds[i]
+                            + " was changed by another writer or would exceed 30 credits!");
+                database.enroll(studentIds[i], courseIds[i]);
+                student.setTotalCredits(student.getTotalCredits() + course.getCredits());
+                database.putStudent(student);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * adds the student and his Enrolled tuples
+     *
+     * @param obj entity must be not null
+     * @return null if the given entity is saved otherwise returns the existing entity
+     * @throws SQLException  if a course of the student does not exist
+     * @throws NullException if input parameter entity obj is NULL
+     */
+    @Override
+    public Student save(Student obj) throws SQLException, NullException {
+        if (obj == null)
+            throw new NullException("Null object!");
+        return database.write(() -> {
+            if (database.containsStudent(obj.getStudentId()))
+                return this.load(obj.getStudentId());
+            database.putStudent(obj);
+            for (Course c : obj.getEnrolledCourses())
+                database.enroll(obj.getStudentId(), c.getCourseId());
+            return null;
+        });
+    }
+
+    /**
+     * updates the attributes of the student and brings his Enrolled tuples in line with his courses
+     *
+     * @param obj entity must not be null
+     * @return null if the entity is updated, otherwise returns the entity
+     * @throws SQLException  if a course of the student does not exist
+     * @throws NullException if input parameter entity obj is NULL
+     */
+    @Override
+    public Student update(Student obj) throws SQLException, NullException {
+        if (obj == null)
+            throw new NullException("Null Object");
+        return database.write(() -> {
+            long id = obj.getStudentId();
+            if (!database.containsStudent(id))
+                return obj;
+            database.putStudent(obj);
+            database.syncCoursesOfStudent(id, obj.getEnrolledCourses().stream()
+                    .mapToLong(Course::getCourseId).toArray());
+            return null;
+        });
+    }
+
+    /**
+     * removes the student and his Enrolled tuples
+     *
+     * @param id id must be not null
+     * @return the removed entity or null
+     * @throws SQLException  never for the in-memory database
+     * @throws NullException if input parameter id is NULL
+     */
+    @Override
+    public Student delete(Long id) throws SQLException, NullException {
+        if (id == null)
+            throw new NullException("Null id");
+        return database.write(() -> {
+            Student student = this.load(id);
+            database.removeStudent(id);
+            return student;
+        });
+    }
+}
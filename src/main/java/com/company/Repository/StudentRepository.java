@@ -3,15 +3,17 @@ package com.company.Repository;
 import com.company.Exceptions.NullException;
 import com.company.Model.Student;
 
+import javax.sql.DataSource;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Student com.company.Repository that extends an in-DataBase-com.company.Repository
  */
 public class StudentRepository extends StudentJdbcRepository {
-    public StudentRepository() throws SQLException {
-        super();
+    public StudentRepository(DataSource dataSource) {
+        super(dataSource);
     }
 
     /**
@@ -38,6 +40,41 @@ public class StudentRepository extends StudentJdbcRepository {
         return super.findAll();
     }
 
+    /**
+     * retrieves one page of entities ordered by id
+     *
+     * @param afterId id of the last entity of the previous page or null for the first page
+     * @param limit   maximum number of entities of the page
+     * @return the page of entities
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public Page<Student> findPage(Long afterId, int limit) throws SQLException {
+        return super.findPage(afterId, limit);
+    }
+
+    /**
+     * streams all entities of the repository
+     *
+     * @return stream of all entities, to be closed after use
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public Stream<Student> streamAll() throws SQLException {
+        return super.streamAll();
+    }
+
+    /**
+     * counts the entities in the repository
+     *
+     * @return number of entities
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public long count() throws SQLException {
+        return super.count();
+    }
+
     /**
      * adds an entity in the repository
      *
@@ -76,4 +113,40 @@ public class StudentRepository extends StudentJdbcRepository {
     public Student delete(Long id) throws SQLException, NullException {
         return super.delete(id);
     }
+
+    /**
+     * sets the total credits of every student to the sum of the credits of his courses
+     *
+     * @return number of students whose credits changed
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public int recomputeCredits() throws SQLException {
+        return super.recomputeCredits();
+    }
+
+    /**
+     * adds delta to the total credits of the students enrolled to the course
+     *
+     * @param courseId id of the course
+     * @param delta    credits to be added
+     * @return number of students whose credits changed
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public int addCredits(long courseId, int delta) throws SQLException {
+        return super.addCredits(courseId, delta);
+    }
+
+    /**
+     * enrolls studentIds[i] to courseIds[i] and adds the credits of the courses to the students
+     *
+     * @param studentIds ids of the students
+     * @param courseIds  ids of the courses, as many as students
+     * @throws SQLException if connection to database could not succeed or a tuple exists already
+     */
+    @Override
+    public void enrollAll(long[] studentIds, long[] courseIds) throws SQLException {
+        super.enrollAll(studentIds, courseIds);
+    }
 }
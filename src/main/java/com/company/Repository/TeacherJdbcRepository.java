@@ -4,28 +4,79 @@ import com.company.Exceptions.NullException;
 import com.company.Model.Course;
 import com.company.Model.Teacher;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * TeacherJdbcRepository implementing ICrudRepository<Teacher>
  */
 public class TeacherJdbcRepository implements ICrudRepository<Teacher> {
-    private String dbUrl;
-    private String user;
-    private String password;
-    private Connection connection;
+    private static final String SELECT_TEACHER = "SELECT teacherId, firstName, lastName FROM Teachers WHERE teacherId = ?";
+    private static final String SELECT_TEACHERS = "SELECT teacherId, firstName, lastName FROM Teachers";
+    private static final String SELECT_COURSES = "SELECT c.courseId, c.name, c.credits, c.maxEnrollment, c.version, t.teacherId, t.firstName, t.lastName " +
+            "FROM Courses c inner join Teachers t on t.teacherId = c.teacherId " +
+            "where t.teacherId = ?";
+    private static final String SELECT_COURSES_IN = "SELECT c.teacherId, c.courseId, c.name, c.credits, c.maxEnrollment, c.version " +
+            "FROM Courses c where c.teacherId in ";
+    private static final String JOINED_COLUMNS = "SELECT t.teacherId, t.firstName, t.lastName, c.courseId, c.name, c.credits, c.maxEnrollment, c.version ";
+    private static final String JOINED_COURSES = "left outer join Courses c on c.teacherId = t.teacherId " +
+            "order by t.teacherId";
+    private static final String SELECT_JOINED = JOINED_COLUMNS + "FROM Teachers t " + JOINED_COURSES;
+    // the derived table seeks the page on the primary key, then the courses of the page are joined to it
+    private static final String SELECT_PAGE = JOINED_COLUMNS +
+            "FROM (SELECT teacherId, firstName, lastName FROM Teachers " +
+            "WHERE teacherId > ? order by teacherId LIMIT ?) t " + JOINED_COURSES;
+    private static final String COUNT_TEACHERS = "SELECT COUNT(*) FROM Teachers";
+    private static final String INSERT_TEACHER = "INSERT INTO Teachers (teacherId, firstName, lastName) values (?, ?, ?)";
+    private static final String INSERT_COURSE = "INSERT INTO Courses (courseId, name, credits, teacherId, maxEnrollment) values (?, ?, ?, ?, ?)";
+    private static final String UPDATE_TEACHER = "UPDATE Teachers set firstName = ?, lastName = ? where teacherId = ?";
+    private static final String SELECT_TEACHER_ROW = "SELECT * FROM Teachers WHERE teacherId = ?";
+    private static final String RELEASE_COURSES = "UPDATE Courses set Courses.teacherId = null, Courses.version = Courses.version + 1 where Courses.teacherId = ?";
 
-    public TeacherJdbcRepository() throws SQLException {
-        this.dbUrl = "jdbc:mysql://localhost/maplab5";
-        this.user = "victor";
-        this.password = "victorgugugaga";
-        this.connection = DriverManager.getConnection(dbUrl, user, password);
+    // maps the rows of SELECT_COURSES and SELECT_COURSES_IN to courses of the given teacher
+    private static final AssociationMapper<Teacher, Course> COURSE_ROWS = (row, teacher, identities) ->
+            identities.course(row, teacher);
+
+    // maps the rows of SELECT_JOINED and SELECT_PAGE, a teacher without courses has a single row with null course columns
+    private static final JoinedRowMapper<Teacher> JOINED_ROWS = new JoinedRowMapper<Teacher>() {
+        @Override
+        public long id(ResultSet row) throws SQLException {
+            return row.getLong("teacherId");
+        }
+
+        @Override
+        public Teacher mapEntity(ResultSet row, IdentityMap identities) throws SQLException {
+            Teacher teacher = new Teacher(row.getLong("teacherId"),
+                    row.getString("firstName"),
+                    row.getString("lastName"));
+            teacher.setCourses(new ArrayList<>());
+            return teacher;
+        }
+
+        @Override
+        public void mapAssociation(Teacher teacher, ResultSet row, IdentityMap identities) throws SQLException {
+            row.getLong("courseId");
+            if (row.wasNull())
+                return;
+            teacher.getCourses().add(COURSE_ROWS.map(row, teacher, identities));
+        }
+    };
+
+    private final DataSource dataSource;
+    private FetchMode fetchMode = FetchMode.JOIN;
+    private int fetchSize = 500;
+    private int batchFetchSize = 25;
+
+    public TeacherJdbcRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
 
     /**
-     * Querying the Courses and Teachers tables in the database to find the teacher and the courses with the given teacherId
+     * Querying the Teachers table in the database to find the teacher with the given teacherId,
+     * his courses are loaded from the Courses table the first time they are used
      *
      * @param id the id of the entity to be returned id must not be null
      * @return the entity with the specified id or null
@@ -38,33 +89,39 @@ public class TeacherJdbcRepository implements ICrudRepository<Teacher> {
         if (id == null) {
             throw new NullException("Null id!");
         }
-        String queryTeacher = "SELECT teacherId, firstName, lastName FROM Teachers " +
-                "WHERE teacherId = '" + id + "'";
-        String queryCourses = "SELECT c.courseId, c.name, c.credits, c.maxEnrollment, t.teacherId, t.firstName, t.lastName " +
-                "FROM Courses c inner join Teachers t on t.teacherId = c.teacherId " +
-                "where t.teacherId = '" + id + "'";
-        Statement statement = connection.createStatement();
-        ResultSet resultTeacher = statement.executeQuery(queryTeacher);
-        if (resultTeacher.next()) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_TEACHER)) {
+            statement.setLong(1, id);
+            ResultSet resultTeacher = statement.executeQuery();
+            if (!resultTeacher.next())
+                return null;
             newTeacher = new Teacher(resultTeacher.getLong("teacherId"),
                     resultTeacher.getString("firstName"),
                     resultTeacher.getString("lastName"));
-            List<Course> teachingCourses = new ArrayList<>();
-            // finds the courses that have the given teacherId
-            Statement statement2 = connection.createStatement();
-            ResultSet resultCourses = statement2.executeQuery(queryCourses);
-            while (resultCourses.next()) {
-                Course course = new Course(resultCourses.getLong("courseId"),
-                        resultCourses.getString("name"),
-                        newTeacher,
-                        resultCourses.getInt("maxEnrollment"),
-                        resultCourses.getInt("credits"));
-                teachingCourses.add(course);
-            }
-            newTeacher.setCourses(teachingCourses);
-            return newTeacher;
-        } else
-            return null;
+        }
+        // the courses that have the given teacherId are loaded when they are first used
+        newTeacher.setCourses(new BatchFetcher<>(dataSource, SELECT_COURSES_IN, COURSE_ROWS, 1, new IdentityMap())
+                .lazyList(newTeacher, id));
+        return newTeacher;
+    }
+
+    /**
+     * finds the courses of the given teacher
+     *
+     * @param connection connection the query runs on
+     * @param teacher    teacher of the courses
+     * @return courses of the teacher
+     * @throws SQLException if connection to database could not succeed
+     */
+    private List<Course> findTeachingCourses(Connection connection, Teacher teacher) throws SQLException {
+        List<Course> teachingCourses = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_COURSES)) {
+            statement.setLong(1, teacher.getTeacherId());
+            ResultSet resultCourses = statement.executeQuery();
+            while (resultCourses.next())
+                teachingCourses.add(COURSE_ROWS.map(resultCourses, teacher, new IdentityMap()));
+        }
+        return teachingCourses;
     }
 
     /**
@@ -75,36 +132,184 @@ public class TeacherJdbcRepository implements ICrudRepository<Teacher> {
      */
     @Override
     public List<Teacher> findAll() throws SQLException {
-        List<Teacher> teachers = new ArrayList<>();
-        Teacher newTeacher = null;
-        long id;
-        String queryTeacher = "SELECT teacherId, firstName, lastName FROM Teachers ";
-        Statement statement = connection.createStatement();
-        ResultSet resultTeacher = statement.executeQuery(queryTeacher);
-        while (resultTeacher.next()) {
-            newTeacher = new Teacher(resultTeacher.getLong("teacherId"),
-                    resultTeacher.getString("firstName"),
-                    resultTeacher.getString("lastName"));
-            List<Course> teachingCourses = new ArrayList<>();
-            id = resultTeacher.getLong("teacherId");
-            String queryCourses = "SELECT c.courseId, c.name, c.credits, c.maxEnrollment, t.teacherId, t.firstName, t.lastName " +
-                    "FROM Courses c inner join Teachers t on t.teacherId = c.teacherId " +
-                    "where t.teacherId = '" + id + "'";
-            Statement statement2 = connection.createStatement();
-            ResultSet resultCourses = statement2.executeQuery(queryCourses);
-            //each course with the current teacherId
-            while (resultCourses.next()) {
-                Course course = new Course(resultCourses.getLong("courseId"),
-                        resultCourses.getString("name"),
-                        newTeacher,
-                        resultCourses.getInt("maxEnrollment"),
-                        resultCourses.getInt("credits"));
-                teachingCourses.add(course);
+        switch (fetchMode) {
+            case JOIN:
+                return this.findAllJoined();
+            case LAZY:
+                return this.findAllLazy();
+            default:
+                return this.findAllBySelect();
+        }
+    }
+
+    /**
+     * loads the teachers only, the courses of the teachers are loaded when first used,
+     * batchFetchSize teachers at a time
+     *
+     * @return a list with all teachers
+     * @throws SQLException if connection to database could not succeed
+     */
+    private List<Teacher> findAllLazy() throws SQLException {
+        BatchFetcher<Teacher, Course> fetcher = new BatchFetcher<>(dataSource, SELECT_COURSES_IN, COURSE_ROWS, batchFetchSize,
+                new IdentityMap());
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_TEACHERS)) {
+            List<Teacher> teachers = new ArrayList<>();
+            ResultSet resultTeacher = statement.executeQuery();
+            while (resultTeacher.next()) {
+                Teacher newTeacher = new Teacher(resultTeacher.getLong("teacherId"),
+                        resultTeacher.getString("firstName"),
+                        resultTeacher.getString("lastName"));
+                newTeacher.setCourses(fetcher.lazyList(newTeacher, newTeacher.getTeacherId()));
+                teachers.add(newTeacher);
+            }
+            return teachers;
+        }
+    }
+
+    /**
+     * loads the teachers and, with one more query for each teacher, his courses
+     *
+     * @return a list with all teachers
+     * @throws SQLException if connection to database could not succeed
+     */
+    private List<Teacher> findAllBySelect() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            List<Teacher> teachers = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_TEACHERS)) {
+                ResultSet resultTeacher = statement.executeQuery();
+                while (resultTeacher.next()) {
+                    Teacher newTeacher = new Teacher(resultTeacher.getLong("teacherId"),
+                            resultTeacher.getString("firstName"),
+                            resultTeacher.getString("lastName"));
+                    //each course with the current teacherId
+                    newTeacher.setCourses(this.findTeachingCourses(connection, newTeacher));
+                    teachers.add(newTeacher);
+                }
             }
-            newTeacher.setCourses(teachingCourses);
-            teachers.add(newTeacher);
+            return teachers;
+        }
+    }
+
+    /**
+     * loads the teachers together with their courses in a single query,
+     * the rows are ordered by teacherId so all the rows of a teacher come one after another
+     *
+     * @return a list with all teachers
+     * @throws SQLException if connection to database could not succeed
+     */
+    private List<Teacher> findAllJoined() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_JOINED)) {
+            return this.readJoined(statement.executeQuery());
+        }
+    }
+
+    /**
+     * loads one page of teachers together with their courses in a single query
+     *
+     * @param afterId id of the last teacher of the previous page or null for the first page
+     * @param limit   maximum number of teachers of the page, at least 1
+     * @return the page of teachers
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public Page<Teacher> findPage(Long afterId, int limit) throws SQLException {
+        if (limit < 1)
+            throw new IllegalArgumentException("Page limit must be at least 1!");
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_PAGE)) {
+            statement.setLong(1, afterId == null ? Long.MIN_VALUE : afterId);
+            // one more teacher than asked tells if there is a next page
+            statement.setInt(2, limit + 1);
+            List<Teacher> teachers = this.readJoined(statement.executeQuery());
+            if (teachers.size() <= limit)
+                return new Page<>(teachers, null);
+            teachers.remove(limit);
+            return new Page<>(teachers, teachers.get(limit - 1).getTeacherId());
+        }
+    }
+
+    /**
+     * streams the teachers together with their courses from a forward-only cursor, which fetches fetchSize rows at a time,
+     * so only the rows of one fetch are held in memory; the stream holds a connection until it is closed
+     *
+     * @return stream of all teachers, to be closed after use
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public Stream<Teacher> streamAll() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            PreparedStatement statement = connection.prepareStatement(SELECT_JOINED,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return new JoinedCursor<>(statement.executeQuery(), JOINED_ROWS, statement, connection).stream();
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
         }
-        return teachers;
+    }
+
+    /**
+     * builds the teachers from the rows of a join ordered by teacherId
+     *
+     * @param resultJoined rows of the join
+     * @return list with the teachers of the rows
+     * @throws SQLException if connection to database could not succeed
+     */
+    private List<Teacher> readJoined(ResultSet resultJoined) throws SQLException {
+        return new JoinedCursor<>(resultJoined, JOINED_ROWS, null, null).toList();
+    }
+
+    /**
+     * counts the tuples in the Teachers table without loading the teachers
+     *
+     * @return number of teachers
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public long count() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(COUNT_TEACHERS)) {
+            ResultSet resultCount = statement.executeQuery();
+            resultCount.next();
+            return resultCount.getLong(1);
+        }
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * @param fetchSize number of rows fetched at a time by the cursor of streamAll
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 1)
+            throw new IllegalArgumentException("Fetch size must be at least 1!");
+        this.fetchSize = fetchSize;
+    }
+
+    public int getBatchFetchSize() {
+        return batchFetchSize;
+    }
+
+    /**
+     * @param batchFetchSize number of lazy associations loaded together in the LAZY fetch mode
+     */
+    public void setBatchFetchSize(int batchFetchSize) {
+        if (batchFetchSize < 1)
+            throw new IllegalArgumentException("Batch fetch size must be at least 1!");
+        this.batchFetchSize = batchFetchSize;
+    }
+
+    public FetchMode getFetchMode() {
+        return fetchMode;
+    }
+
+    public void setFetchMode(FetchMode fetchMode) {
+        this.fetchMode = fetchMode;
     }
 
     /**
@@ -117,28 +322,28 @@ public class TeacherJdbcRepository implements ICrudRepository<Teacher> {
      */
     @Override
     public Teacher save(Teacher obj) throws SQLException, NullException {
-        Teacher existingTeacher = this.findOne(obj.getTeacherId());
         if (obj == null)
             throw new NullException("Null object!");
+        Teacher existingTeacher = this.findOne(obj.getTeacherId());
         if (existingTeacher != null) {
             return existingTeacher;
-        } else {
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement insertStmt = connection.prepareStatement(INSERT_TEACHER);
+             PreparedStatement courseStmt = connection.prepareStatement(INSERT_COURSE)) {
             // inserts the teacher in the Teachers table
-            String insertTeacher = "INSERT INTO Teachers (teacherId, firstName, lastName) values ('" + obj.getTeacherId() + "', '"
-                    + obj.getFirstName() + "', '"
-                    + obj.getLastName() + "')";
-            Statement insertStmt = connection.createStatement();
-            insertStmt.executeUpdate(insertTeacher);
+            insertStmt.setLong(1, obj.getTeacherId());
+            insertStmt.setString(2, obj.getFirstName());
+            insertStmt.setString(3, obj.getLastName());
+            insertStmt.executeUpdate();
             // inserts his courses in the Courses table
             for (Course c : obj.getCourses()) {
-                String insertCourses = "INSERT INTO Courses (courseId, name, credits, teacherId, maxEnrollment) values " +
-                        "('" + c.getCourseId() + "', '"
-                        + c.getName() + "', '"
-                        + c.getCredits() + "', '"
-                        + obj.getTeacherId() + "', '"
-                        + c.getMaxEnrollment() + "')";
-                Statement enrollStmt = connection.createStatement();
-                enrollStmt.executeUpdate(insertCourses);
+                courseStmt.setLong(1, c.getCourseId());
+                courseStmt.setString(2, c.getName());
+                courseStmt.setInt(3, c.getCredits());
+                courseStmt.setLong(4, obj.getTeacherId());
+                courseStmt.setInt(5, c.getMaxEnrollment());
+                courseStmt.executeUpdate();
             }
             return null;
         }
@@ -156,14 +361,14 @@ public class TeacherJdbcRepository implements ICrudRepository<Teacher> {
     public Teacher update(Teacher obj) throws SQLException, NullException {
         if (obj == null)
             throw new NullException("Null Object");
-        Teacher existingTeacher = this.findOne(obj.getTeacherId());
-        if (existingTeacher == null) {
-            return obj;
-        } else {
-            String updateSql = "UPDATE Teachers set firstName ='" + obj.getFirstName() + "', lastName = '" + obj.getLastName() + "'" +
-                    " where teacherId = '" + obj.getTeacherId() + "'";
-            Statement updateStmt = connection.createStatement();
-            updateStmt.executeUpdate(updateSql);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement updateStmt = connection.prepareStatement(UPDATE_TEACHER)) {
+            updateStmt.setString(1, obj.getFirstName());
+            updateStmt.setString(2, obj.getLastName());
+            updateStmt.setLong(3, obj.getTeacherId());
+            // no matched row means there is no teacher with this id
+            if (updateStmt.executeUpdate() == 0)
+                return obj;
             return null;
         }
     }
@@ -180,21 +385,22 @@ public class TeacherJdbcRepository implements ICrudRepository<Teacher> {
     public Teacher delete(Long id) throws SQLException, NullException {
         if (id == null)
             throw new NullException("Null id");
-        Teacher teacher = null;
-        String selectAll = "SELECT * FROM Teachers " +
-                "WHERE teacherId = '" + id + "'";
-        Statement deleteStmt = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_UPDATABLE);
-        ResultSet deleteResultSet = deleteStmt.executeQuery(selectAll);
-        if (deleteResultSet.next()) {
-            teacher = new Teacher(deleteResultSet.getLong("teacherId"),
-                    deleteResultSet.getString("firstName"),
-                    deleteResultSet.getString("lastName"));
-            String updateCourses = "UPDATE Courses set Courses.teacherId = null " +
-                    "where Courses.teacherId = '" + id + "'";
-            Statement statement2 = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_UPDATABLE);
-            statement2.executeUpdate(updateCourses);
-            deleteResultSet.deleteRow();
-        }
-        return teacher;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement deleteStmt = connection.prepareStatement(SELECT_TEACHER_ROW,
+                     ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_UPDATABLE);
+             PreparedStatement statement2 = connection.prepareStatement(RELEASE_COURSES)) {
+            Teacher teacher = null;
+            deleteStmt.setLong(1, id);
+            ResultSet deleteResultSet = deleteStmt.executeQuery();
+            if (deleteResultSet.next()) {
+                teacher = new Teacher(deleteResultSet.getLong("teacherId"),
+                        deleteResultSet.getString("firstName"),
+                        deleteResultSet.getString("lastName"));
+                statement2.setLong(1, id);
+                statement2.executeUpdate();
+                deleteResultSet.deleteRow();
+            }
+            return teacher;
+        }
     }
 }
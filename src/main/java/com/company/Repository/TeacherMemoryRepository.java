@@ -0,0 +1,109 @@
+package com.company.Repository;
+
+import com.company.Database.InMemoryDatabase;
+import com.company.Exceptions.NullException;
+import com.company.Model.Course;
+import com.company.Model.Teacher;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+
+/**
+ * TeacherMemoryRepository implementing ICrudRepository<Teacher> on the in-memory database
+ */
+public class TeacherMemoryRepository extends MemoryRepository<Teacher> {
+    public TeacherMemoryRepository(InMemoryDatabase database) {
+        super(database);
+    }
+
+    @Override
+    protected long[] ids() {
+        return database.teacherIds();
+    }
+
+    /**
+     * builds the teacher with the courses he teaches
+     */
+    @Override
+    protected Teacher load(long id) {
+        Teacher teacher = database.teacher(id);
+        if (teacher == null)
+            return null;
+        for (long courseId : database.coursesOfTeacher(id)) {
+            Course course = database.course(courseId);
+            // the course shares the teacher instance like in the JDBC repository
+            course.setTeacher(teacher);
+            teacher.getCourses().add(course);
+        }
+        return teacher;
+    }
+
+    @Override
+    public long count() {
+        return database.read(database::teacherCount);
+    }
+
+    /**
+     * adds the teacher and his courses
+     *
+     * @param obj entity must be not null
+     * @return null if the given entity is saved otherwise returns the existing entity
+     * @throws SQLException  if one of his courses exists already
+     * @throws NullException if input parameter entity obj is NULL
+     */
+    @Override
+    public Teacher save(Teacher obj) throws SQLException, NullException {
+        if (obj == null)
+            throw new NullException("Null object!");
+        return database.write(() -> {
+            if (database.containsTeacher(obj.getTeacherId()))
+                return this.load(obj.getTeacherId());
+            database.putTeacher(obj);
+            for (Course c : obj.getCourses()) {
+                if (database.containsCourse(c.getCourseId()))
+                    throw new SQLIntegrityConstraintViolationException("Course " + c.getCourseId() + " exists already!");
+                database.putCourse(new Course(c.getCourseId(), c.getName(), obj, c.getMaxEnrollment(), c.getCredits()));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * updates the names of the teacher, his courses are changed through the course repository
+     *
+     * @param obj entity must not be null
+     * @return null if the entity is updated, otherwise returns the entity
+     * @throws SQLException  never for the in-memory database
+     * @throws NullException if input parameter entity obj is NULL
+     */
+    @Override
+    public Teacher update(Teacher obj) throws SQLException, NullException {
+        if (obj == null)
+            throw new NullException("Null Object");
+        return database.write(() -> {
+            if (!database.containsTeacher(obj.getTeacherId()))
+                return obj;
+            database.putTeacher(obj);
+            return null;
+        });
+    }
+
+    /**
+     * removes the teacher, his courses are left without teacher
+     *
+     * @param id id must be not null
+     * @return the removed entity or null if there is no entity with the given id
+     * @throws SQLException  never for the in-memory database
+     * @throws NullException if input parameter id is NULL
+     */
+    @Override
+    public Teacher delete(Long id) throws SQLException, NullException {
+        if (id == null)
+            throw new NullException("Null id");
+        return database.write(() -> {
+            Teacher teacher = database.teacher(id);
+            database.removeTeacher(id);
+            return teacher;
+        });
+    }
+}
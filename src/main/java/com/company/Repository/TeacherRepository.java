@@ -3,15 +3,17 @@ package com.company.Repository;
 import com.company.Exceptions.NullException;
 import com.company.Model.Teacher;
 
+import javax.sql.DataSource;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Teacher com.company.Repository that extends an in-DataBase-com.company.Repository
  */
 public class TeacherRepository extends TeacherJdbcRepository {
-    public TeacherRepository() throws SQLException {
-        super();
+    public TeacherRepository(DataSource dataSource) {
+        super(dataSource);
     }
 
     /**
@@ -38,6 +40,41 @@ public class TeacherRepository extends TeacherJdbcRepository {
         return super.findAll();
     }
 
+    /**
+     * retrieves one page of entities ordered by id
+     *
+     * @param afterId id of the last entity of the previous page or null for the first page
+     * @param limit   maximum number of entities of the page
+     * @return the page of entities
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public Page<Teacher> findPage(Long afterId, int limit) throws SQLException {
+        return super.findPage(afterId, limit);
+    }
+
+    /**
+     * streams all entities of the repository
+     *
+     * @return stream of all entities, to be closed after use
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public Stream<Teacher> streamAll() throws SQLException {
+        return super.streamAll();
+    }
+
+    /**
+     * counts the entities in the repository
+     *
+     * @return number of entities
+     * @throws SQLException if connection to database could not succeed
+     */
+    @Override
+    public long count() throws SQLException {
+        return super.count();
+    }
+
     /**
      * adds an entity in the repository
      *
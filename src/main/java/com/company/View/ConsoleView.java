@@ -6,6 +6,8 @@ import com.company.Exceptions.NullException;
 import com.company.Model.Course;
 import com.company.Model.Student;
 import com.company.Model.Teacher;
+import com.company.Repository.EnrollmentCount;
+import com.company.Repository.Page;
 
 import java.io.IOException;
 import java.sql.SQLException;
@@ -15,6 +17,8 @@ import java.util.Scanner;
 import java.util.stream.Stream;
 
 public class ConsoleView {
+    // number of entities shown at once in the listings
+    private static final int PAGE_SIZE = 20;
 
     // stores the current logged In student or teacher
     private final RegistrationSystem controller;
@@ -225,6 +229,48 @@ public class ConsoleView {
         return givenCourse;
     }
 
+    /**
+     * asks the user if the next page of a listing should be shown
+     *
+     * @return true if the user wants the next page
+     */
+    private boolean askNextPage() {
+        String answear;
+        do {
+            System.out.println("Show more? Y/N");
+            answear = in.next();
+        } while (!answear.equals("Y") && !(answear.equals("N")));
+        return answear.equals("Y");
+    }
+
+    /**
+     * shows the students page by page, only one page is loaded at a time
+     *
+     * @throws SQLException if connection to database could not succeed
+     */
+    public void printStudentPages() throws SQLException {
+        Page<Student> page = controller.getStudentsPage(null, PAGE_SIZE);
+        page.getItems().forEach(System.out::println);
+        while (page.hasNext() && this.askNextPage()) {
+            page = controller.getStudentsPage(page.getNextAfterId(), PAGE_SIZE);
+            page.getItems().forEach(System.out::println);
+        }
+    }
+
+    /**
+     * shows the courses page by page, only one page is loaded at a time
+     *
+     * @throws SQLException if connection to database could not succeed
+     */
+    public void printCoursePages() throws SQLException {
+        Page<Course> page = controller.getCoursesPage(null, PAGE_SIZE);
+        page.getItems().forEach(System.out::println);
+        while (page.hasNext() && this.askNextPage()) {
+            page = controller.getCoursesPage(page.getNextAfterId(), PAGE_SIZE);
+            page.getItems().forEach(System.out::println);
+        }
+    }
+
     /**
      * gets input from the user the Student id and the Course id, validates it and enrolls the student
      */
@@ -233,8 +279,7 @@ public class ConsoleView {
         if (loggedStudentId == null) {
             System.out.println();
             try {
-                Stream.of(controller.getAllStudents())
-                        .forEach(System.out::println);
+                this.printStudentPages();
             } catch (SQLException s) {
                 System.out.println("Error! Unsuccessful connection to Database1.");
             }
@@ -250,8 +295,7 @@ public class ConsoleView {
         }
         try {
             System.out.println();
-            Stream.of(controller.getAllCourses())
-                    .forEach(System.out::println);
+            this.printCoursePages();
         } catch (SQLException s) {
             System.out.println("Error! Unsuccessful connection to Database3.");
         }
@@ -272,8 +316,7 @@ public class ConsoleView {
     public void option2() {
         System.out.println();
         try {
-            Stream.of(controller.getAllCourses())
-                    .forEach(System.out::println);
+            this.printCoursePages();
         } catch (SQLException s) {
             System.out.println("Error! Unsuccessful connection to Database.");
         }
@@ -323,9 +366,9 @@ public class ConsoleView {
     public void option5() {
         int freePlaces;
         try {
-            for (Course course : controller.retrieveCoursesWithFreePlaces()) {
-                freePlaces = course.getMaxEnrollment() - course.getStudentsEnrolled().size();
-                System.out.println(freePlaces + " free places in: " + course);
+            for (EnrollmentCount count : controller.retrieveFreePlaces()) {
+                freePlaces = count.getFreePlaces();
+                System.out.println(freePlaces + " free places in: " + count.getCourse());
             }
         } catch (SQLException s) {
             System.out.println("Error! Unsuccessful connection to Database.");
@@ -349,7 +392,7 @@ public class ConsoleView {
             System.out.println("Enter the last name: ");
             String newTeacherLastName = in.next();
             try {
-                long newTeacherId = ((long) controller.getAllTeachers().size()) + 1;
+                long newTeacherId = controller.countTeachers() + 1;
                 newCourseTeacher = new Teacher(newTeacherId, newTeacherFirstName, newTeacherLastName);
             } catch (SQLException s) {
                 System.out.println("Error! Unsuccessful connection to Database.");
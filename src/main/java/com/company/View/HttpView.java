@@ -0,0 +1,521 @@
+package com.company.View;
+
+import com.company.Controller.AsyncRegistrationSystem;
+import com.company.Controller.RegistrationOutcome;
+import com.company.Controller.RegistrationRequest;
+import com.company.Controller.RegistrationSystem;
+import com.company.Exceptions.InputException;
+import com.company.Exceptions.NullException;
+import com.company.Model.Course;
+import com.company.Model.Student;
+import com.company.Model.Teacher;
+import com.company.Repository.EnrollmentCount;
+import com.company.Repository.Page;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * the registration system as a JSON API over HTTP, served by the HttpServer of the JDK
+ * GET  /courses                      all courses, ?sort=credits, ?filter=credits or a page with ?limit=n&after=id
+ * GET  /courses/free                 courses with free places and the number of their students
+ * GET  /courses/{id}
+ * GET  /students                     all students, ?sort=name, ?filter=credits or a page with ?limit=n&after=id
+ * GET  /students/{id}
+ * POST /registrations                {"studentId": 1, "courseId": 2}
+ * POST /registrations/batch          [{"studentId": 1, "courseId": 2}, ...], the outcome of every request
+ * GET  /metrics                      latency of every route since the start
+ * the worker threads of the server only parse the requests, the calls run on an AsyncRegistrationSystem,
+ * which bounds how many of them use the database at once; connections are kept alive between requests
+ */
+public class HttpView {
+    private static final String JSON = "application/json; charset=utf-8";
+    // read by the HttpServer of the JDK when the first server is created
+    private static final String IDLE_INTERVAL_PROPERTY = "sun.net.httpserver.idleInterval";
+    private static final int MAX_BODY_BYTES = 1 << 20;
+    // the latencies are kept for these routes, all other requests are counted together under OTHER_ROUTE
+    private static final Set<String> ROUTES = new HashSet<>(Arrays.asList("GET /courses", "GET /courses/free",
+            "GET /courses/{id}", "GET /students", "GET /students/{id}", "POST /registrations",
+            "POST /registrations/batch", "GET /metrics"));
+    private static final String OTHER_ROUTE = "other";
+
+    private final RegistrationSystem controller;
+    private final AsyncRegistrationSystem calls;
+    private final HttpServer server;
+    private final ExecutorService workers;
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentSkipListMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final long startMillis = System.currentTimeMillis();
+
+    /**
+     * @param controller       the registration system
+     * @param port             port to listen on, 0 for any free port
+     * @param workerCount      number of threads parsing the requests and writing the responses
+     * @param maxConcurrent    how many calls may run on the registration system at once,
+     *                         usually the size of the connection pool
+     * @param keepAliveSeconds how long an idle connection is kept open for the next request of its client
+     * @throws IOException if the port could not be opened
+     */
+    public HttpView(RegistrationSystem controller, int port, int workerCount, int maxConcurrent, int keepAliveSeconds)
+            throws IOException {
+        if (System.getProperty(IDLE_INTERVAL_PROPERTY) == null)
+            System.setProperty(IDLE_INTERVAL_PROPERTY, Integer.toString(keepAliveSeconds));
+        this.controller = controller;
+        this.calls = new AsyncRegistrationSystem(controller, maxConcurrent);
+        this.workers = Executors.newFixedThreadPool(workerCount, new WorkerThreads());
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(workers);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("Serving the registration system on http://localhost:" + this.getPort() + "/ "
+                + (calls.usesVirtualThreads() ? "(virtual threads)" : "(platform threads)"));
+    }
+
+    /**
+     * starts the server and blocks until stop is called or the JVM shuts down
+     */
+    public void serve() {
+        Thread hook = new Thread(this::stop, "http-view-shutdown");
+        Runtime.getRuntime().addShutdownHook(hook);
+        this.start();
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.stop();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException e) {
+            // the JVM shuts down already, the hook stops the server
+        }
+    }
+
+    /**
+     * stops taking requests, lets the requests in flight end for at most a second and stops the worker threads
+     */
+    public void stop() {
+        if (stopped.getCount() == 0)
+            return;
+        server.stop(1);
+        calls.close();
+        workers.shutdown();
+        stopped.countDown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) {
+        long start = System.nanoTime();
+        inFlight.incrementAndGet();
+        String method = exchange.getRequestMethod();
+        List<String> path = segments(exchange.getRequestURI().getRawPath());
+        String route = routeOf(method, path);
+        CompletableFuture<Response> response;
+        try {
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String body = readBody(exchange.getRequestBody());
+            response = this.dispatch(method, path, query, body);
+        } catch (RuntimeException | IOException | StackOverflowError e) {
+            response = failed(e);
+        }
+        response.exceptionally(HttpView::errorResponse)
+                .whenComplete((r, e) -> {
+                    // also when no response could be made or sent, so every request is counted and leaves inFlight
+                    boolean error = true;
+                    try {
+                        if (r == null) {
+                            exchange.close();
+                        } else {
+                            this.send(exchange, r);
+                            error = r.status >= 500;
+                        }
+                    } finally {
+                        latencies.computeIfAbsent(route, key -> new LatencyHistogram())
+                                .record(System.nanoTime() - start, error);
+                        inFlight.decrementAndGet();
+                    }
+                });
+    }
+
+    private CompletableFuture<Response> dispatch(String method, List<String> path, Map<String, String> query,
+                                                 String body) {
+        String resource = path.isEmpty() ? "" : path.get(0);
+        switch (resource) {
+            case "courses":
+                if (!"GET".equals(method))
+                    return methodNotAllowed("GET");
+                if (path.size() == 1)
+                    return this.listCourses(query);
+                if (path.size() == 2 && "free".equals(path.get(1)))
+                    return calls.retrieveFreePlaces().thenApply(courses -> {
+                        Json.Writer json = new Json.Writer().beginArray();
+                        for (EnrollmentCount count : courses) {
+                            writeCourse(json, count.getCourse());
+                            json.member("enrolled", count.getEnrolled())
+                                    .member("freePlaces", count.getFreePlaces())
+                                    .endObject();
+                        }
+                        return Response.ok(json.endArray());
+                    });
+                if (path.size() == 2)
+                    return calls.findOneCourse(parseId(path.get(1))).thenApply(course -> course == null
+                            ? Response.error(404, "Non existing course id!")
+                            : Response.ok(writeCourse(new Json.Writer(), course).endObject()));
+                break;
+            case "students":
+                if (!"GET".equals(method))
+                    return methodNotAllowed("GET");
+                if (path.size() == 1)
+                    return this.listStudents(query);
+                if (path.size() == 2)
+                    return calls.findOneStudent(parseId(path.get(1))).thenApply(student -> student == null
+                            ? Response.error(404, "Non existing student id!")
+                            : Response.ok(writeStudent(new Json.Writer(), student)));
+                break;
+            case "registrations":
+                if (!"POST".equals(method))
+                    return methodNotAllowed("POST");
+                if (path.size() == 1)
+                    return this.register(toRequest(Json.parse(body)));
+                if (path.size() == 2 && "batch".equals(path.get(1)))
+                    return this.registerAll(Json.parse(body));
+                break;
+            case "metrics":
+                if (!"GET".equals(method))
+                    return methodNotAllowed("GET");
+                if (path.size() == 1)
+                    return CompletableFuture.completedFuture(Response.ok(this.writeMetrics()));
+                break;
+            default:
+        }
+        return CompletableFuture.completedFuture(Response.error(404, "No such resource!"));
+    }
+
+    private CompletableFuture<Response> listCourses(Map<String, String> query) {
+        CompletableFuture<List<Course>> courses;
+        if ("credits".equals(query.get("sort")))
+            courses = calls.submit(controller::sortCourses);
+        else if ("credits".equals(query.get("filter")))
+            courses = calls.submit(controller::filterCourses);
+        else if (query.containsKey("limit"))
+            return calls.getCoursesPage(parseAfter(query), parseLimit(query)).thenApply(page -> {
+                Json.Writer json = new Json.Writer().beginObject().name("items").beginArray();
+                for (Course course : page.getItems())
+                    writeCourse(json, course).endObject();
+                return Response.ok(writeNext(json.endArray(), page).endObject());
+            });
+        else
+            courses = calls.getAllCourses();
+        return courses.thenApply(list -> {
+            Json.Writer json = new Json.Writer().beginArray();
+            for (Course course : list)
+                writeCourse(json, course).endObject();
+            return Response.ok(json.endArray());
+        });
+    }
+
+    private CompletableFuture<Response> listStudents(Map<String, String> query) {
+        CompletableFuture<List<Student>> students;
+        if ("name".equals(query.get("sort")))
+            students = calls.submit(controller::sortStudents);
+        else if ("credits".equals(query.get("filter")))
+            students = calls.submit(controller::filterStudents);
+        else if (query.containsKey("limit"))
+            return calls.getStudentsPage(parseAfter(query), parseLimit(query)).thenApply(page -> {
+                Json.Writer json = new Json.Writer().beginObject().name("items").beginArray();
+                for (Student student : page.getItems())
+                    writeStudent(json, student);
+                return Response.ok(writeNext(json.endArray(), page).endObject());
+            });
+        else
+            students = calls.getAllStudents();
+        return students.thenApply(list -> {
+            Json.Writer json = new Json.Writer().beginArray();
+            for (Student student : list)
+                writeStudent(json, student);
+            return Response.ok(json.endArray());
+        });
+    }
+
+    private CompletableFuture<Response> register(RegistrationRequest request) {
+        return calls.submit(() -> {
+            Course course = controller.findOneCourse(request.getCourseId());
+            if (course == null)
+                return Response.error(404, "Non existing course id!");
+            Student student = controller.findOneStudent(request.getStudentId());
+            if (student == null)
+                return Response.error(404, "Non existing student id!");
+            controller.register(course, student);
+            return new Response(201, new Json.Writer().beginObject()
+                    .member("studentId", student.getStudentId())
+                    .member("courseId", course.getCourseId())
+                    .member("totalCredits", student.getTotalCredits())
+                    .endObject().toString());
+        });
+    }
+
+    private CompletableFuture<Response> registerAll(Object body) {
+        if (!(body instanceof List))
+            throw new IllegalArgumentException("Expected an array of registrations!");
+        List<RegistrationRequest> requests = new ArrayList<>();
+        for (Object element : (List<?>) body)
+            requests.add(toRequest(element));
+        return calls.registerAll(requests).thenApply(outcomes -> {
+            Json.Writer json = new Json.Writer().beginArray();
+            for (int i = 0; i < requests.size(); i++) {
+                RegistrationOutcome outcome = outcomes.get(i);
+                json.beginObject()
+                        .member("studentId", requests.get(i).getStudentId())
+                        .member("courseId", requests.get(i).getCourseId())
+                        .member("outcome", outcome.name())
+                        .member("message", outcome.getMessage())
+                        .endObject();
+            }
+            return Response.ok(json.endArray());
+        });
+    }
+
+    private Json.Writer writeMetrics() {
+        Json.Writer json = new Json.Writer().beginObject()
+                .member("uptimeMillis", System.currentTimeMillis() - startMillis)
+                .member("inFlight", inFlight.get())
+                .member("running", calls.getRunningCount())
+                .member("waiting", calls.getWaitingCount())
+                .member("virtualThreads", calls.usesVirtualThreads())
+                .name("routes").beginObject();
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram latency = entry.getValue();
+            json.name(entry.getKey()).beginObject()
+                    .member("count", latency.getCount())
+                    .member("errors", latency.getErrorCount())
+                    .member("meanMillis", latency.getMeanMillis())
+                    .member("p50Millis", latency.getPercentileMillis(50))
+                    .member("p90Millis", latency.getPercentileMillis(90))
+                    .member("p99Millis", latency.getPercentileMillis(99))
+                    .member("p999Millis", latency.getPercentileMillis(99.9))
+                    .member("maxMillis", latency.getMaxMillis())
+                    .endObject();
+        }
+        return json.endObject().endObject();
+    }
+
+    /**
+     * writes the members of the course and leaves its object open for more members
+     */
+    private static Json.Writer writeCourse(Json.Writer json, Course course) {
+        json.beginObject()
+                .member("courseId", course.getCourseId())
+                .member("name", course.getName());
+        Teacher teacher = course.getTeacher();
+        if (teacher == null)
+            json.name("teacher").value((String) null);
+        else
+            json.name("teacher").beginObject()
+                    .member("teacherId", teacher.getTeacherId())
+                    .member("firstName", teacher.getFirstName())
+                    .member("lastName", teacher.getLastName())
+                    .endObject();
+        return json.member("maxEnrollment", course.getMaxEnrollment())
+                .member("credits", course.getCredits());
+    }
+
+    private static Json.Writer writeStudent(Json.Writer json, Student student) {
+        return json.beginObject()
+                .member("studentId", student.getStudentId())
+                .member("firstName", student.getFirstName())
+                .member("lastName", student.getLastName())
+                .member("totalCredits", student.getTotalCredits())
+                .endObject();
+    }
+
+    private static Json.Writer writeNext(Json.Writer json, Page<?> page) {
+        json.name("nextAfterId");
+        return page.getNextAfterId() == null ? json.value((String) null) : json.value(page.getNextAfterId());
+    }
+
+    private void send(HttpExchange exchange, Response response) {
+        byte[] bytes = response.body.getBytes(StandardCharsets.UTF_8);
+        try {
+            exchange.getResponseHeaders().set("Content-Type", JSON);
+            if (response.allow != null)
+                exchange.getResponseHeaders().set("Allow", response.allow);
+            // a known length lets the connection stay open for the next request
+            exchange.sendResponseHeaders(response.status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            // the client went away, there is nobody to answer
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static Response errorResponse(Throwable e) {
+        Throwable cause = e;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null)
+            cause = cause.getCause();
+        if (cause instanceof InputException)
+            return Response.error(409, cause.getMessage());
+        if (cause instanceof NullException || cause instanceof IllegalArgumentException)
+            return Response.error(400, cause.getMessage());
+        if (cause instanceof SQLException)
+            return Response.error(503, "Database error: " + cause.getMessage());
+        return Response.error(500, String.valueOf(cause));
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    private static CompletableFuture<Response> methodNotAllowed(String allow) {
+        Response response = Response.error(405, "Use " + allow + "!");
+        response.allow = allow;
+        return CompletableFuture.completedFuture(response);
+    }
+
+    private static RegistrationRequest toRequest(Object element) {
+        if (!(element instanceof Map))
+            throw new IllegalArgumentException("Expected a registration object!");
+        Map<?, ?> members = (Map<?, ?>) element;
+        return new RegistrationRequest(longMember(members, "studentId"), longMember(members, "courseId"));
+    }
+
+    private static long longMember(Map<?, ?> members, String name) {
+        Object value = members.get(name);
+        if (!(value instanceof Long))
+            throw new IllegalArgumentException("Expected an integer " + name + "!");
+        return (Long) value;
+    }
+
+    private static long parseId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid id " + id + "!");
+        }
+    }
+
+    private static Long parseAfter(Map<String, String> query) {
+        return query.containsKey("after") ? parseId(query.get("after")) : null;
+    }
+
+    private static int parseLimit(Map<String, String> query) {
+        try {
+            int limit = Integer.parseInt(query.get("limit"));
+            if (limit < 1)
+                throw new IllegalArgumentException("The limit must be positive!");
+            return limit;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid limit " + query.get("limit") + "!");
+        }
+    }
+
+    private static List<String> segments(String rawPath) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : rawPath.split("/"))
+            if (!segment.isEmpty())
+                segments.add(segment);
+        return segments;
+    }
+
+    /**
+     * @return the method and the path with ids replaced, so the latencies of all ids are counted together,
+     * or OTHER_ROUTE if it is not one of the ROUTES, so the clients can not add keys to the metrics
+     */
+    private static String routeOf(String method, List<String> path) {
+        StringBuilder route = new StringBuilder(method).append(' ');
+        for (String segment : path) {
+            boolean id = !segment.isEmpty() && segment.chars().allMatch(Character::isDigit);
+            route.append('/').append(id ? "{id}" : segment);
+        }
+        return ROUTES.contains(route.toString()) ? route.toString() : OTHER_ROUTE;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null)
+            return query;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+        }
+        return query;
+    }
+
+    /**
+     * reads the whole body, also when it is not used, so the connection can take the next request
+     */
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        try (InputStream stream = in) {
+            while ((n = stream.read(buffer)) > 0) {
+                body.write(buffer, 0, n);
+                if (body.size() > MAX_BODY_BYTES)
+                    throw new IllegalArgumentException("The request body is larger than " + MAX_BODY_BYTES + " bytes!");
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * status and JSON body of a response
+     */
+    private static final class Response {
+        private final int status;
+        private final String body;
+        private String allow;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Response ok(Json.Writer json) {
+            return new Response(200, json.toString());
+        }
+
+        static Response error(int status, String message) {
+            return new Response(status, new Json.Writer().beginObject().member("error", message).endObject().toString());
+        }
+    }
+
+    /**
+     * daemon threads, so the server does not keep the JVM alive after the view returned
+     */
+    private static final class WorkerThreads implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "http-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.company.View;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * the little JSON the HTTP view needs, without a library on the classpath:
+ * parse reads a document into maps, lists, strings, numbers (Long or Double), booleans and null,
+ * Writer writes objects and arrays into a StringBuilder, putting the commas between the members
+ */
+final class Json {
+    // objects and arrays nested deeper are refused, the parser recurses once for every level
+    private static final int MAX_DEPTH = 64;
+
+    private final String text;
+    private int pos;
+    private int depth;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @param text a JSON document
+     * @return the value of the document
+     * @throws IllegalArgumentException if the text is not valid JSON or nested deeper than MAX_DEPTH
+     */
+    static Object parse(String text) {
+        Json json = new Json(text);
+        Object value = json.value();
+        json.skipSpace();
+        if (json.pos != text.length())
+            throw json.error("end of document");
+        return value;
+    }
+
+    private Object value() {
+        this.skipSpace();
+        if (pos >= text.length())
+            throw this.error("a value");
+        char c = text.charAt(pos);
+        switch (c) {
+            case '{':
+                this.enter();
+                Map<String, Object> object = this.object();
+                depth--;
+                return object;
+            case '[':
+                this.enter();
+                List<Object> array = this.array();
+                depth--;
+                return array;
+            case '"':
+                return this.string();
+            case 't':
+                return this.literal("true", Boolean.TRUE);
+            case 'f':
+                return this.literal("false", Boolean.FALSE);
+            case 'n':
+                return this.literal("null", null);
+            default:
+                return this.number();
+        }
+    }
+
+    private void enter() {
+        if (++depth > MAX_DEPTH)
+            throw new IllegalArgumentException("The JSON document is nested deeper than " + MAX_DEPTH + " levels!");
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> members = new LinkedHashMap<>();
+        pos++;
+        this.skipSpace();
+        if (this.consume('}'))
+            return members;
+        do {
+            this.skipSpace();
+            if (pos >= text.length() || text.charAt(pos) != '"')
+                throw this.error("a member name");
+            String name = this.string();
+            this.skipSpace();
+            if (!this.consume(':'))
+                throw this.error("':'");
+            members.put(name, this.value());
+            this.skipSpace();
+        } while (this.consume(','));
+        if (!this.consume('}'))
+            throw this.error("'}'");
+        return members;
+    }
+
+    private List<Object> array() {
+        List<Object> elements = new ArrayList<>();
+        pos++;
+        this.skipSpace();
+        if (this.consume(']'))
+            return elements;
+        do {
+            elements.add(this.value());
+            this.skipSpace();
+        } while (this.consume(','));
+        if (!this.consume(']'))
+            throw this.error("']'");
+        return elements;
+    }
+
+    private String string() {
+        StringBuilder s = new StringBuilder();
+        pos++;
+        while (pos < text.length()) {
+            char c = text.charAt(pos++);
+            if (c == '"')
+                return s.toString();
+            if (c != '\\') {
+                s.append(c);
+                continue;
+            }
+            if (pos >= text.length())
+                break;
+            char escaped = text.charAt(pos++);
+            switch (escaped) {
+                case 'b':
+                    s.append('\b');
+                    break;
+                case 'f':
+                    s.append('\f');
+                    break;
+                case 'n':
+                    s.append('\n');
+                    break;
+                case 'r':
+                    s.append('\r');
+                    break;
+                case 't':
+                    s.append('\t');
+                    break;
+                case 'u':
+                    if (pos + 4 > text.length())
+                        throw this.error("4 hex digits");
+                    try {
+                        s.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw this.error("4 hex digits");
+                    }
+                    pos += 4;
+                    break;
+                default:
+                    s.append(escaped);
+            }
+        }
+        throw this.error("'\"'");
+    }
+
+    private Object number() {
+        int start = pos;
+        boolean decimal = false;
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c == '.' || c == 'e' || c == 'E')
+                decimal = true;
+            else if (!(c >= '0' && c <= '9') && c != '-' && c != '+')
+                break;
+            pos++;
+        }
+        String digits = text.substring(start, pos);
+        try {
+            return decimal ? (Object) Double.parseDouble(digits) : (Object) Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            pos = start;
+            throw this.error("a value");
+        }
+    }
+
+    private Object literal(String word, Object value) {
+        if (!text.startsWith(word, pos))
+            throw this.error("a value");
+        pos += word.length();
+        return value;
+    }
+
+    private boolean consume(char c) {
+        if (pos < text.length() && text.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipSpace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos)))
+            pos++;
+    }
+
+    private IllegalArgumentException error(String expected) {
+        return new IllegalArgumentException("Expected " + expected + " at position " + pos + " of the JSON document!");
+    }
+
+    /**
+     * writes one JSON document, the calls must nest like the document
+     */
+    static final class Writer {
+        private final StringBuilder out = new StringBuilder();
+        // true while the current object or array has no member yet
+        private boolean first = true;
+
+        Writer beginObject() {
+            this.separate();
+            out.append('{');
+            first = true;
+            return this;
+        }
+
+        Writer endObject() {
+            out.append('}');
+            first = false;
+            return this;
+        }
+
+        Writer beginArray() {
+            this.separate();
+            out.append('[');
+            first = true;
+            return this;
+        }
+
+        Writer endArray() {
+            out.append(']');
+            first = false;
+            return this;
+        }
+
+        /**
+         * writes the name of the next member of the current object
+         */
+        Writer name(String name) {
+            this.separate();
+            quote(name);
+            out.append(':');
+            first = true;
+            return this;
+        }
+
+        Writer value(String value) {
+            this.separate();
+            if (value == null)
+                out.append("null");
+            else
+                quote(value);
+            return this;
+        }
+
+        Writer value(long value) {
+            this.separate();
+            out.append(value);
+            return this;
+        }
+
+        Writer value(double value) {
+            this.separate();
+            out.append(Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value));
+            return this;
+        }
+
+        Writer value(boolean value) {
+            this.separate();
+            out.append(value);
+            return this;
+        }
+
+        Writer member(String name, String value) {
+            return this.name(name).value(value);
+        }
+
+        Writer member(String name, long value) {
+            return this.name(name).value(value);
+        }
+
+        Writer member(String name, double value) {
+            return this.name(name).value(value);
+        }
+
+        Writer member(String name, boolean value) {
+            return this.name(name).value(value);
+        }
+
+        private void separate() {
+            if (!first)
+                out.append(',');
+            first = false;
+        }
+
+        private void quote(String s) {
+            out.append('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '"':
+                        out.append("\\\"");
+                        break;
+                    case '\\':
+                        out.append("\\\\");
+                        break;
+                    case '\n':
+                        out.append("\\n");
+                        break;
+                    case '\r':
+                        out.append("\\r");
+                        break;
+                    case '\t':
+                        out.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20)
+                            out.append(String.format("\\u%04x", (int) c));
+                        else
+                            out.append(c);
+                }
+            }
+            out.append('"');
+        }
+
+        @Override
+        public String toString() {
+            return out.toString();
+        }
+    }
+}